@@ -4,9 +4,11 @@ import android.app.Activity;
 import android.content.Context;
 import dagger.ObjectGraph;
 import java.util.Collection;
+import java.util.Iterator;
 import mortar.Mortar;
 import mortar.MortarActivityScope;
 import mortar.MortarScope;
+import mortar.ObjectGraphFactory;
 
 /**
  * Provides utility methods for using Mortar with Dagger 1.
@@ -47,6 +49,62 @@ public class Dagger1 {
     return newGraph;
   }
 
+  /**
+   * Returns a factory for {@link MortarScope#createLazyChild} that adds the given module(s) to
+   * the graph of the given parent scope, as {@link #createSubgraph} does, but only once the new
+   * child's graph is first needed.
+   * <p/>
+   * Factories for the same parent are equal if their modules are, so that a {@link
+   * mortar.ScopeRecycler} only hands a child the graph of a predecessor built from the same
+   * modules. Modules that don't override equals only match themselves: to have a child reuse
+   * its predecessor's graph, hand it the same module instance, or override equals on modules
+   * whose equal instances add interchangeable bindings.
+   */
+  public static ObjectGraphFactory subgraphFactory(MortarScope parentScope, Object daggerModule) {
+    return new SubgraphFactory(parentScope, daggerModule);
+  }
+
+  private static final class SubgraphFactory implements ObjectGraphFactory {
+    private final MortarScope parentScope;
+    private final Object daggerModule;
+
+    SubgraphFactory(MortarScope parentScope, Object daggerModule) {
+      this.parentScope = parentScope;
+      this.daggerModule = daggerModule;
+    }
+
+    @Override public Object createObjectGraph() {
+      return createSubgraph(parentScope.<ObjectGraph>getObjectGraph(), daggerModule);
+    }
+
+    @Override public boolean equals(Object o) {
+      if (!(o instanceof SubgraphFactory)) return false;
+      SubgraphFactory other = (SubgraphFactory) o;
+      return parentScope == other.parentScope && sameModules(daggerModule, other.daggerModule);
+    }
+
+    @Override public int hashCode() {
+      return System.identityHashCode(parentScope);
+    }
+  }
+
+  private static boolean sameModules(Object a, Object b) {
+    if (a == b) return true;
+    if (a == null || b == null) return false;
+    if (a instanceof Collection && b instanceof Collection) {
+      Collection<?> left = (Collection<?>) a;
+      Collection<?> right = (Collection<?>) b;
+      if (left.size() != right.size()) return false;
+      Iterator<?> i = right.iterator();
+      for (Object module : left) {
+        if (!sameModules(module, i.next())) return false;
+      }
+      return true;
+    }
+    // Object's equals is identity, so modules that don't override it only match themselves.
+    return a.equals(b);
+  }
+
   /**
    * Returns the existing {@link MortarActivityScope} scope for the given {@link Activity}, or
    * uses the {@link Blueprint} to create one if none is found.
@@ -75,6 +133,9 @@ public class Dagger1 {
    * {@link Blueprint#getMortarScopeName()} value. If there is none, a new child is created
    * based on {@link Blueprint#getDaggerModule()}. Note that
    * {@link Blueprint#getDaggerModule()} is not called otherwise.
+   * <p/>
+   * The new child is {@link MortarScope#createLazyChild lazy}: its graph is not built until
+   * it is first needed.
    *
    * @throws IllegalStateException if this scope has been destroyed
    */
@@ -82,10 +143,8 @@ public class Dagger1 {
     String childName = blueprint.getMortarScopeName();
     MortarScope child = parentScope.findChild(childName);
     if (child == null) {
-      ObjectGraph parentGraph = parentScope.getObjectGraph();
       Object daggerModule = blueprint.getDaggerModule();
-      Object childGraph = createSubgraph(parentGraph, daggerModule);
-      child = parentScope.createChild(childName, childGraph);
+      child = parentScope.createLazyChild(childName, subgraphFactory(parentScope, daggerModule));
     }
     return child;
   }
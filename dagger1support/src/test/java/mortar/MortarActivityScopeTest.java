@@ -18,6 +18,15 @@ package mortar;
 import android.os.Bundle;
 import dagger.Module;
 import dagger.ObjectGraph;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import mortar.dagger1support.Dagger1;
@@ -32,6 +41,7 @@ import org.robolectric.annotation.Config;
 import static mortar.Mortar.createRootScope;
 import static mortar.dagger1support.Dagger1.requireChild;
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -87,6 +97,84 @@ public class MortarActivityScopeTest {
     }
   }
 
+  private static class MyIncrementalBundler extends MyBundler implements IncrementalBundler {
+    boolean dirty;
+    int saves;
+
+    MyIncrementalBundler(String name) {
+      super(name);
+    }
+
+    @Override public boolean isDirty() {
+      return dirty;
+    }
+
+    @Override public void onSave(Bundle outState) {
+      super.onSave(outState);
+      saves++;
+      dirty = false;
+    }
+  }
+
+  private static class MyCompactBundler implements CompactBundler {
+    final String name;
+    int value;
+    StateReader lastLoaded;
+
+    MyCompactBundler(String name, int value) {
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override public String getMortarBundleKey() {
+      return name;
+    }
+
+    @Override public void onLoad(StateReader savedState) {
+      lastLoaded = savedState;
+      if (savedState != null) value = savedState.getInt("value", -1);
+    }
+
+    @Override public void onSave(StateWriter outState) {
+      outState.putInt("value", value);
+    }
+
+    @Override public void onEnterScope(MortarScope scope) {
+    }
+
+    @Override public void onExitScope() {
+    }
+  }
+
+  private static class MyAsyncBundler extends MyBundler implements AsyncBundler {
+    final List<String> loads;
+    final CountDownLatch allPreparing;
+    volatile Thread preparedOn;
+    volatile boolean preparedTogether;
+
+    MyAsyncBundler(String name, List<String> loads, CountDownLatch allPreparing) {
+      super(name);
+      this.loads = loads;
+      this.allPreparing = allPreparing;
+    }
+
+    @Override public void prepareLoad(Bundle savedInstanceState) {
+      preparedOn = Thread.currentThread();
+      allPreparing.countDown();
+      try {
+        preparedTogether = allPreparing.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    @Override public void onLoad(Bundle savedInstanceState) {
+      super.onLoad(savedInstanceState);
+      assertThat(preparedTogether).isTrue();
+      loads.add(name);
+    }
+  }
+
   static class MyBlueprint implements Blueprint {
     private final String name;
 
@@ -436,6 +524,214 @@ public class MortarActivityScopeTest {
     activityScope.onCreate(null);
   }
 
+  @Test public void cleanIncrementalBundlerKeepsItsLastBundle() {
+    activityScope.onCreate(null);
+    MyIncrementalBundler bundler = new MyIncrementalBundler("bundler");
+    activityScope.register(bundler);
+
+    Bundle first = new Bundle();
+    activityScope.onSaveInstanceState(first);
+    assertThat(bundler.saves).isEqualTo(1);
+
+    Bundle second = new Bundle();
+    activityScope.onSaveInstanceState(second);
+    assertThat(bundler.saves).isEqualTo(1);
+    assertThat(second.getBundle("bundler")).isSameAs(first.getBundle("bundler"));
+
+    bundler.dirty = true;
+    Bundle third = new Bundle();
+    activityScope.onSaveInstanceState(third);
+    assertThat(bundler.saves).isEqualTo(2);
+    assertThat(third.getBundle("bundler")).isNotSameAs(first.getBundle("bundler"));
+    assertThat(third.getBundle("bundler").getString("key")).isEqualTo("bundler");
+  }
+
+  @Test public void cleanIncrementalBundlerSavesIntoNewScope() {
+    activityScope.onCreate(null);
+    MyIncrementalBundler bundler = new MyIncrementalBundler("bundler");
+    activityScope.register(bundler);
+    activityScope.onSaveInstanceState(new Bundle());
+
+    resetScope();
+    activityScope.onCreate(null);
+    activityScope.register(bundler);
+    Bundle bundle = new Bundle();
+    activityScope.onSaveInstanceState(bundle);
+    assertThat(bundler.saves).isEqualTo(2);
+    assertThat(bundle.getBundle("bundler").getString("key")).isEqualTo("bundler");
+  }
+
+  @Test public void saveReachesEveryDescendantAndReturnsToIdle() {
+    activityScope.onCreate(null);
+    MortarScope first = activityScope.createChild("first", null);
+    MortarScope second = activityScope.createChild("second", null);
+    MortarScope grandchild = second.createChild("grandchild", null);
+    MyBundler firstBundler = new MyBundler("first");
+    MyBundler secondBundler = new MyBundler("second");
+    MyBundler grandchildBundler = new MyBundler("grandchild");
+    first.register(firstBundler);
+    second.register(secondBundler);
+    grandchild.register(grandchildBundler);
+
+    Bundle bundle = new Bundle();
+    activityScope.onSaveInstanceState(bundle);
+    assertThat(firstBundler.lastSaved).isSameAs(bundle.getBundle("first").getBundle("first"));
+    assertThat(secondBundler.lastSaved).isSameAs(bundle.getBundle("second").getBundle("second"));
+    assertThat(grandchildBundler.lastSaved).isSameAs(
+        bundle.getBundle("second").getBundle("grandchild").getBundle("grandchild"));
+
+    // Every scope is idle again, free to save or take new registrations.
+    first.register(new MyBundler("another"));
+    grandchild.register(new MyBundler("another"));
+    activityScope.onSaveInstanceState(new Bundle());
+  }
+
+  @Test public void compactStateSurvivesProcessDeath() {
+    activityScope.onCreate(null);
+    activityScope.register(new MyCompactBundler("top", 1));
+    activityScope.createChild("child", null).register(new MyCompactBundler("low", 2));
+    Bundle bundle = new Bundle();
+    activityScope.onSaveInstanceState(bundle);
+
+    bundle = new Bundle(bundle);
+    resetScope();
+    activityScope.onCreate(bundle);
+    MyCompactBundler top = new MyCompactBundler("top", 0);
+    MyCompactBundler low = new MyCompactBundler("low", 0);
+    activityScope.register(top);
+    activityScope.createChild("child", null).register(low);
+    assertThat(top.value).isEqualTo(1);
+    assertThat(low.value).isEqualTo(2);
+  }
+
+  @Test public void destroyedChildForgetsCompactState() {
+    activityScope.onCreate(null);
+    MortarScope child = activityScope.createChild("child", null);
+    child.register(new MyCompactBundler("low", 2));
+    activityScope.onSaveInstanceState(new Bundle());
+
+    activityScope.destroyChild(child);
+    MyCompactBundler low = new MyCompactBundler("low", 0);
+    activityScope.createChild("child", null).register(low);
+    assertThat(low.lastLoaded).isNull();
+    assertThat(low.value).isEqualTo(0);
+  }
+
+  @Test public void largeStateSpillsToDiskAndSurvivesProcessDeath() throws IOException {
+    File dir = File.createTempFile("mortar-state", "");
+    assertThat(dir.delete()).isTrue();
+    // Parcel can't marshall under Robolectric, so measure and write just the bundler's "key".
+    StateSpill.Codec codec = new StateSpill.Codec() {
+      @Override public byte[] encode(Bundle bundle) {
+        return bundle.getString("key").getBytes();
+      }
+
+      @Override public Bundle decode(byte[] bytes) {
+        Bundle bundle = new Bundle();
+        bundle.putString("key", new String(bytes));
+        return bundle;
+      }
+    };
+    ((RealActivityScope) activityScope).stateSpill = new StateSpill(dir, 5, codec);
+    activityScope.onCreate(null);
+    activityScope.register(new MyBundler("tiny"));
+    activityScope.createChild("child", null).register(new MyBundler("rather large"));
+    Bundle bundle = new Bundle();
+    activityScope.onSaveInstanceState(bundle);
+    assertThat(bundle.getBundle("tiny").getString("key")).isEqualTo("tiny");
+    assertThat(bundle.getBundle("child").getBundle("rather large").getString("key")).isNull();
+
+    bundle = new Bundle(bundle);
+    resetScope();
+    ((RealActivityScope) activityScope).stateSpill = new StateSpill(dir, 5, codec);
+    activityScope.onCreate(bundle);
+    MyBundler tiny = new MyBundler("tiny");
+    MyBundler large = new MyBundler("rather large");
+    activityScope.register(tiny);
+    activityScope.createChild("child", null).register(large);
+    assertThat(tiny.lastLoaded.getString("key")).isEqualTo("tiny");
+    assertThat(large.lastLoaded.getString("key")).isEqualTo("rather large");
+
+    root.destroyChild(activityScope);
+    File rootDir = new File(dir, root.getName());
+    assertThat(rootDir.list()).isEmpty();
+    assertThat(rootDir.delete() && dir.delete()).isTrue();
+  }
+
+  @Test public void asyncBundlersPrepareTogetherAndLoadInOrder() {
+    activityScope.onCreate(null);
+    List<String> loads = new ArrayList<>();
+    CountDownLatch allPreparing = new CountDownLatch(3);
+    final MyAsyncBundler[] bundlers = {
+        new MyAsyncBundler("one", loads, allPreparing),
+        new MyAsyncBundler("two", loads, allPreparing),
+        new MyAsyncBundler("three", loads, allPreparing)
+    };
+    final MortarScope child = activityScope.createChild("child", null);
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Mortar.setLoadExecutor(activityScope, executor);
+      // Register during a load pass, so that all three are due at once.
+      activityScope.register(new MyBundler("first") {
+        @Override public void onLoad(Bundle savedInstanceState) {
+          super.onLoad(savedInstanceState);
+          for (MyAsyncBundler bundler : bundlers) {
+            child.register(bundler);
+          }
+        }
+      });
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(loads).containsExactly("one", "two", "three");
+    for (MyAsyncBundler bundler : bundlers) {
+      assertThat(bundler.preparedOn).isNotSameAs(Thread.currentThread());
+    }
+  }
+
+  @Test public void throwingLoadCancelsPreparedLoads() {
+    activityScope.onCreate(null);
+    final List<Runnable> queued = new ArrayList<>();
+    Mortar.setLoadExecutor(activityScope, new Executor() {
+      @Override public void execute(Runnable command) {
+        queued.add(command);
+      }
+    });
+    final AtomicBoolean prepared = new AtomicBoolean();
+    final MyBundler thrower = new MyBundler("thrower") {
+      @Override public void onLoad(Bundle savedInstanceState) {
+        throw new IllegalStateException("boom");
+      }
+    };
+    final MyBundler async = new MyAsyncBundler("async", new ArrayList<String>(),
+        new CountDownLatch(0)) {
+      @Override public void prepareLoad(Bundle savedInstanceState) {
+        prepared.set(true);
+      }
+    };
+    final MortarScope child = activityScope.createChild("child", null);
+
+    try {
+      // Register during a load pass, so that both are due at once.
+      activityScope.register(new MyBundler("first") {
+        @Override public void onLoad(Bundle savedInstanceState) {
+          super.onLoad(savedInstanceState);
+          child.register(thrower);
+          child.register(async);
+        }
+      });
+      fail("Expected exception");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).isEqualTo("boom");
+    }
+
+    assertThat(queued).hasSize(1);
+    queued.get(0).run();
+    assertThat(prepared.get()).isFalse();
+  }
+
   @Test(expected = IllegalStateException.class) public void cannotOnSaveDestroyed() {
     root.destroyChild(activityScope);
     activityScope.onSaveInstanceState(new Bundle());
@@ -489,6 +785,62 @@ public class MortarActivityScopeTest {
     assertThat(childScopeBundler.lastLoaded).isSameAs(childScopeBundlerState);
   }
 
+  @Test public void batchRestoresChainOfScopesWithTheirState() {
+    activityScope.onCreate(null);
+    List<MortarScope> scopes = new ScopeBatch(activityScope) //
+        .child("child", null).descend() //
+        .child("grandchild", null) //
+        .create();
+    scopes.get(0).register(new MyBundler("childBundler"));
+    scopes.get(1).register(new MyBundler("grandchildBundler"));
+
+    Bundle state = new Bundle();
+    activityScope.onSaveInstanceState(state);
+
+    resetScope();
+    activityScope.onCreate(state);
+    scopes = new ScopeBatch(activityScope) //
+        .child("child", null).descend() //
+        .child("grandchild", null) //
+        .create();
+    assertThat(scopes.get(0).getName()).isEqualTo("child");
+    assertThat(activityScope.findChild("child").findChild("grandchild")).isSameAs(scopes.get(1));
+
+    MyBundler childBundler = new MyBundler("childBundler");
+    MyBundler grandchildBundler = new MyBundler("grandchildBundler");
+    scopes.get(0).register(childBundler);
+    scopes.get(1).register(grandchildBundler);
+    assertThat(childBundler.lastLoaded).isNotNull();
+    assertThat(grandchildBundler.lastLoaded).isNotNull();
+  }
+
+  @Test public void batchReturnsExistingScopesAndLoadsThemOnce() {
+    MortarScope existing = requireChild(activityScope, new MyBlueprint("existing"));
+    final AtomicInteger loads = new AtomicInteger(0);
+    existing.register(new MyBundler("existingBundler") {
+      @Override public void onLoad(Bundle savedInstanceState) {
+        loads.incrementAndGet();
+      }
+    });
+    assertThat(loads.get()).isEqualTo(1);
+
+    List<MortarScope> scopes = new ScopeBatch(activityScope) //
+        .child("existing", null) //
+        .child("sibling", null) //
+        .create();
+    assertThat(scopes.get(0)).isSameAs(existing);
+    assertThat(scopes.get(1)).isSameAs(activityScope.findChild("sibling"));
+    assertThat(loads.get()).isEqualTo(1);
+
+    activityScope.onCreate(null);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test(expected = IllegalStateException.class) public void cannotBatchOnDestroyed() {
+    root.destroyChild(activityScope);
+    new ScopeBatch(activityScope).child("child", null).create();
+  }
+
   /** <a href="https://github.com/square/mortar/issues/46">Issue 46</a> */
   @Test public void registerWithDescendantScopesCreatedDuringParentOnCreateGetOnlyOneOnLoadCall() {
     final MyBundler childBundler = new MyBundler("child");
@@ -20,6 +20,8 @@ import dagger.Module;
 import dagger.ObjectGraph;
 import dagger.Provides;
 import java.lang.annotation.Retention;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import javax.inject.Qualifier;
@@ -33,6 +35,7 @@ import static dagger.ObjectGraph.create;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 import static java.util.Arrays.asList;
 import static mortar.Mortar.MORTAR_SCOPE_SERVICE;
+import static mortar.MortarScope.ROOT_NAME;
 import static mortar.dagger1support.Dagger1.requireChild;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.fest.assertions.api.Assertions.fail;
@@ -431,6 +434,201 @@ import static org.mockito.MockitoAnnotations.initMocks;
     assertThat(objectGraph.get(HasApple.class).string).isEqualTo(Apple.class.getName());
   }
 
+  @Test public void requireChildBuildsGraphLazily() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    LazyGraphStats stats = Mortar.getLazyGraphStats(root);
+    MortarScope child = requireChild(root, new BakerBlueprint());
+    assertThat(stats.getCreated()).isEqualTo(1);
+    assertThat(stats.getMaterialized()).isEqualTo(0);
+
+    ObjectGraph objectGraph = child.getObjectGraph();
+    assertThat(objectGraph.get(HasBagel.class).string).isEqualTo(Bagel.class.getName());
+    assertThat(child.getObjectGraph()).isSameAs(objectGraph);
+    assertThat(stats.getMaterialized()).isEqualTo(1);
+    assertThat(stats.getSkipped()).isEqualTo(0);
+  }
+
+  @Test public void lazyChildDestroyedUntouchedNeverBuildsGraph() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    final AtomicInteger builds = new AtomicInteger(0);
+    MortarScope child = root.createLazyChild("lazy", new ObjectGraphFactory() {
+      @Override public Object createObjectGraph() {
+        builds.incrementAndGet();
+        return create(new Baker());
+      }
+    });
+    child.createChild("grandchild", null);
+
+    root.destroyChild(child);
+    assertThat(builds.get()).isEqualTo(0);
+    assertThat(Mortar.getLazyGraphStats(root).getSkipped()).isEqualTo(1);
+  }
+
+  /** Equal instances add the same bindings, so the graphs they build can be recycled. */
+  @Module(library = true) static class Numbered {
+    final int number;
+
+    Numbered(int number) {
+      this.number = number;
+    }
+
+    @Override public boolean equals(Object o) {
+      return o instanceof Numbered && ((Numbered) o).number == number;
+    }
+
+    @Override public int hashCode() {
+      return number;
+    }
+  }
+
+  static class NumberedBlueprint implements Blueprint {
+    final String name;
+    final int number;
+
+    NumberedBlueprint(String name, int number) {
+      this.name = name;
+      this.number = number;
+    }
+
+    @Override public String getMortarScopeName() {
+      return name;
+    }
+
+    @Override public Object getDaggerModule() {
+      return new Numbered(number);
+    }
+  }
+
+  @Test public void recyclesGraphOfDestroyedLazyChild() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    ScopeRecycler recycler = Mortar.enableScopeRecycling(root, 4);
+
+    MortarScope child = requireChild(root, new NumberedBlueprint("child", 1));
+    ObjectGraph objectGraph = child.getObjectGraph();
+    root.destroyChild(child);
+    assertThat(recycler.getSize()).isEqualTo(1);
+
+    MortarScope revived = requireChild(root, new NumberedBlueprint("child", 1));
+    assertThat(revived).isNotSameAs(child);
+    assertThat(revived.getObjectGraph()).isSameAs(objectGraph);
+    assertThat(recycler.getHits()).isEqualTo(1);
+    assertThat(recycler.getMisses()).isEqualTo(1);
+    assertThat(Mortar.getLazyGraphStats(root).getMaterialized()).isEqualTo(1);
+  }
+
+  @Test public void recyclerIgnoresGraphsThatWereNeverBuilt() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    ScopeRecycler recycler = Mortar.enableScopeRecycling(root, 4);
+
+    root.destroyChild(requireChild(root, new BakerBlueprint()));
+    assertThat(recycler.getSize()).isEqualTo(0);
+  }
+
+  @Test public void recyclerEvictsLeastRecentlyUsed() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    ScopeRecycler recycler = Mortar.enableScopeRecycling(root, 2);
+
+    for (Blueprint blueprint : asList(new NumberedBlueprint("one", 1),
+        new NumberedBlueprint("two", 2), new NumberedBlueprint("three", 3))) {
+      MortarScope child = requireChild(root, blueprint);
+      child.getObjectGraph();
+      root.destroyChild(child);
+    }
+    assertThat(recycler.getSize()).isEqualTo(2);
+    assertThat(recycler.getEvictions()).isEqualTo(1);
+
+    requireChild(root, new NumberedBlueprint("one", 1));
+    assertThat(recycler.getHits()).isEqualTo(0);
+    requireChild(root, new NumberedBlueprint("three", 3));
+    assertThat(recycler.getHits()).isEqualTo(1);
+  }
+
+  @Test public void recyclerForgetsChildrenOfDestroyedParents() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    ScopeRecycler recycler = Mortar.enableScopeRecycling(root, 4);
+
+    MortarScope parent = requireChild(root, new NumberedBlueprint("parent", 1));
+    MortarScope child = requireChild(parent, new NumberedBlueprint("child", 2));
+    child.getObjectGraph();
+    ObjectGraph parentGraph = parent.getObjectGraph();
+    parent.destroyChild(child);
+    assertThat(recycler.getSize()).isEqualTo(1);
+
+    root.destroyChild(parent);
+    // The parent's own graph is kept, its child's is not.
+    assertThat(recycler.getSize()).isEqualTo(1);
+    ObjectGraph revivedGraph = requireChild(root, new NumberedBlueprint("parent", 1))
+        .getObjectGraph();
+    assertThat(revivedGraph).isSameAs(parentGraph);
+  }
+
+  @Test public void recyclerDiscardsGraphsBuiltFromOtherModules() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    ScopeRecycler recycler = Mortar.enableScopeRecycling(root, 4);
+
+    MortarScope child = root.createLazyChild("numbered",
+        Dagger1.subgraphFactory(root, new Numbered(1)));
+    ObjectGraph oneGraph = child.getObjectGraph();
+    root.destroyChild(child);
+
+    MortarScope other = root.createLazyChild("numbered",
+        Dagger1.subgraphFactory(root, new Numbered(2)));
+    ObjectGraph twoGraph = other.getObjectGraph();
+    assertThat(twoGraph).isNotSameAs(oneGraph);
+    assertThat(recycler.getHits()).isEqualTo(0);
+    assertThat(recycler.getSize()).isEqualTo(0);
+    root.destroyChild(other);
+
+    MortarScope same = root.createLazyChild("numbered",
+        Dagger1.subgraphFactory(root, new Numbered(2)));
+    ObjectGraph sameGraph = same.getObjectGraph();
+    assertThat(sameGraph).isSameAs(twoGraph);
+    assertThat(recycler.getHits()).isEqualTo(1);
+  }
+
+  @Test public void recyclerOnlyMatchesModulesWithoutEqualsToThemselves() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    ScopeRecycler recycler = Mortar.enableScopeRecycling(root, 4);
+    Baker baker = new Baker();
+
+    MortarScope child = root.createLazyChild("baker", Dagger1.subgraphFactory(root, baker));
+    ObjectGraph bakerGraph = child.getObjectGraph();
+    root.destroyChild(child);
+    MortarScope same = root.createLazyChild("baker", Dagger1.subgraphFactory(root, baker));
+    ObjectGraph sameGraph = same.getObjectGraph();
+    assertThat(sameGraph).isSameAs(bakerGraph);
+    assertThat(recycler.getHits()).isEqualTo(1);
+
+    root.destroyChild(same);
+    MortarScope other = root.createLazyChild("baker",
+        Dagger1.subgraphFactory(root, new Baker()));
+    ObjectGraph otherGraph = other.getObjectGraph();
+    assertThat(otherGraph).isNotSameAs(bakerGraph);
+    assertThat(recycler.getHits()).isEqualTo(1);
+    assertThat(recycler.getSize()).isEqualTo(0);
+  }
+
+  @Test public void recyclerOnlyMatchesEqualFactories() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    ScopeRecycler recycler = Mortar.enableScopeRecycling(root, 4);
+    final AtomicInteger builds = new AtomicInteger(0);
+    class CountingFactory implements ObjectGraphFactory {
+      @Override public Object createObjectGraph() {
+        builds.incrementAndGet();
+        return create(new Baker());
+      }
+    }
+
+    CountingFactory factory = new CountingFactory();
+    MortarScope child = root.createLazyChild("lazy", factory);
+    child.getObjectGraph();
+    root.destroyChild(child);
+    root.createLazyChild("lazy", new CountingFactory()).getObjectGraph();
+    assertThat(builds.get()).isEqualTo(2);
+    assertThat(recycler.getHits()).isEqualTo(0);
+    assertThat(recycler.getMisses()).isEqualTo(2);
+  }
+
   @Test public void handlesRecursiveDestroy() {
     final AtomicInteger i = new AtomicInteger(0);
 
@@ -448,6 +646,118 @@ import static org.mockito.MockitoAnnotations.initMocks;
     assertThat(i.get()).isEqualTo(1);
   }
 
+  @Test public void destroyExitsChildrenBeforeParents() {
+    final List<String> exits = new ArrayList<>();
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    MortarScope parent = root.createChild("parent", null);
+    MortarScope first = parent.createChild("first", null);
+    MortarScope second = parent.createChild("second", null);
+    MortarScope grandchild = first.createChild("grandchild", null);
+
+    for (final MortarScope scope : asList(parent, first, second, grandchild)) {
+      for (final String registrant : asList("a", "b")) {
+        scope.register(new Scoped() {
+          @Override public void onEnterScope(MortarScope scope) {
+          }
+
+          @Override public void onExitScope() {
+            exits.add(scope.getName() + "." + registrant);
+          }
+        });
+      }
+    }
+
+    root.destroyChild(parent);
+    assertThat(exits).containsExactly("grandchild.a", "grandchild.b", "first.a", "first.b",
+        "second.a", "second.b", "parent.a", "parent.b");
+  }
+
+  @Test public void destroyMarksWholeSubtreeDeadBeforeExits() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    final MortarScope parent = root.createChild("parent", null);
+    MortarScope child = parent.createChild("child", null);
+
+    final AtomicInteger exits = new AtomicInteger(0);
+    child.register(new Scoped() {
+      @Override public void onEnterScope(MortarScope scope) {
+      }
+
+      @Override public void onExitScope() {
+        assertThat(parent.isDestroyed()).isTrue();
+        exits.incrementAndGet();
+      }
+    });
+
+    root.destroyChild(parent);
+    assertThat(exits.get()).isEqualTo(1);
+  }
+
+  @Test public void destroysVeryDeepTree() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    MortarScope scope = root;
+    for (int i = 0; i < 100000; i++) {
+      scope = scope.createChild("child" + i, null);
+    }
+    scope.register(scoped);
+
+    Mortar.destroyRootScope(root);
+    verify(scoped).onExitScope();
+    assertThat(scope.isDestroyed()).isTrue();
+  }
+
+  @Test public void pathOfVeryDeepScope() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    MortarScope middle = null;
+    MortarScope scope = root;
+    StringBuilder expected = new StringBuilder(ROOT_NAME);
+    for (int i = 0; i < 100000; i++) {
+      scope = scope.createChild("child" + i, null);
+      expected.append('/').append("child").append(i);
+      if (i == 500) middle = scope;
+    }
+
+    String path = expected.toString();
+    assertThat(middle.getPath()).isEqualTo(path.substring(0, path.indexOf("/child501")));
+    assertThat(scope.getPath()).isEqualTo(path);
+    assertThat(root.findScope(path)).isSameAs(scope);
+  }
+
+  @Test public void findScopeByPath() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    MortarActivityScope activityScope = Dagger1.requireActivityScope(root, new BakerBlueprint());
+    MortarScope child = requireChild(activityScope, new CharlieBlueprint());
+
+    String path = ROOT_NAME + "/" + Bagel.class.getName() + "/" + Carrot.class.getName();
+    assertThat(child.getPath()).isEqualTo(path);
+    assertThat(root.findScope(path)).isSameAs(child);
+    assertThat(child.findScope(path)).isSameAs(child);
+    assertThat(child.findScope(activityScope.getPath())).isSameAs(activityScope);
+    assertThat(child.findScope(ROOT_NAME)).isSameAs(root);
+    assertThat(root.findScope(path + "/herman")).isNull();
+    assertThat(root.findScope("herman/" + Bagel.class.getName())).isNull();
+  }
+
+  @Test public void findScopeForgetsDestroyedScopes() {
+    MortarScope root = Mortar.createRootScope(create(new Able()));
+    MortarScope child = root.createChild("child", null);
+    MortarScope grandchild = child.createChild("grandchild", null);
+    assertThat(root.findScope("Root/child/grandchild")).isSameAs(grandchild);
+
+    root.destroyChild(child);
+    assertThat(root.findScope("Root/child/grandchild")).isNull();
+    assertThat(root.findScope("Root/child")).isNull();
+
+    MortarScope newChild = root.createChild("child", null);
+    MortarScope newGrandchild = newChild.createChild("grandchild", null);
+    assertThat(root.findScope("Root/child/grandchild")).isSameAs(newGrandchild);
+  }
+
+  @Test(expected = IllegalStateException.class) public void cannotFindScopeFromDestroyed() {
+    MortarScope scope = Mortar.createRootScope(create(new Able()));
+    Mortar.destroyRootScope(scope);
+    scope.findScope(ROOT_NAME);
+  }
+
   @Test public void inject() {
     MortarScope root = Mortar.createRootScope(create(new Able()));
     when(context.getSystemService(MORTAR_SCOPE_SERVICE)).thenReturn(root);
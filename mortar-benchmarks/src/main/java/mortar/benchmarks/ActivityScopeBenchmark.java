@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.os.Bundle;
+import java.util.concurrent.TimeUnit;
+import mortar.Mortar;
+import mortar.MortarActivityScope;
+import mortar.MortarScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MortarActivityScope#onCreate} and {@link MortarActivityScope#onSaveInstanceState} with
+ * {@code bundlers} registrants, as on every rotation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ActivityScopeBenchmark {
+  @Param({ "1", "10", "100" }) public int bundlers;
+
+  MortarScope root;
+  MortarActivityScope activityScope;
+  Bundle savedState;
+
+  @Setup public void setUp() {
+    root = Mortar.createRootScope(null);
+    activityScope = Mortar.createActivityScope(root, "activity", null);
+    for (int i = 0; i < bundlers; i++) {
+      activityScope.register(new CountingBundler("bundler-" + i));
+    }
+    savedState = new Bundle();
+    activityScope.onSaveInstanceState(savedState);
+  }
+
+  @TearDown public void tearDown() {
+    Mortar.destroyRootScope(root);
+  }
+
+  @Benchmark public void onCreate() {
+    activityScope.onCreate(savedState);
+  }
+
+  @Benchmark public Bundle onSaveInstanceState() {
+    Bundle outState = new Bundle();
+    activityScope.onSaveInstanceState(outState);
+    return outState;
+  }
+}
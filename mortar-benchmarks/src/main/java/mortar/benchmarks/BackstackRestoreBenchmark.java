@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.os.Bundle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import mortar.Mortar;
+import mortar.MortarActivityScope;
+import mortar.MortarScope;
+import mortar.ScopeBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Restoring a backstack of {@code depth} screen scopes below a freshly created activity scope,
+ * one {@link MortarScope#findChild}/{@link MortarScope#createChild} at a time versus one {@link
+ * ScopeBatch}. A {@link Shape#CHAIN} nests each screen in the one before it, a {@link Shape#SET}
+ * makes them siblings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BackstackRestoreBenchmark {
+  public enum Shape {
+    CHAIN, SET
+  }
+
+  @Param({ "CHAIN", "SET" }) public Shape shape;
+  @Param({ "5", "20", "100" }) public int depth;
+
+  String[] names;
+  Bundle savedState;
+  MortarScope root;
+  MortarActivityScope activityScope;
+
+  @Setup(Level.Trial) public void saveState() {
+    names = ScopeTreeBenchmark.names(depth);
+
+    setUp();
+    MortarScope scope = activityScope;
+    for (String name : names) {
+      MortarScope child = scope.createChild(name, null);
+      child.register(new CountingBundler(name));
+      if (shape == Shape.CHAIN) scope = child;
+    }
+    savedState = new Bundle();
+    activityScope.onSaveInstanceState(savedState);
+    tearDown();
+  }
+
+  @Setup(Level.Invocation) public void setUp() {
+    root = Mortar.createRootScope(null);
+    activityScope = Mortar.createActivityScope(root, "activity", null);
+    activityScope.onCreate(savedState);
+  }
+
+  @TearDown(Level.Invocation) public void tearDown() {
+    Mortar.destroyRootScope(root);
+  }
+
+  @Benchmark public MortarScope oneAtATime() {
+    MortarScope scope = activityScope;
+    MortarScope last = null;
+    for (String name : names) {
+      last = scope.findChild(name);
+      if (last == null) last = scope.createChild(name, null);
+      if (shape == Shape.CHAIN) scope = last;
+    }
+    return last;
+  }
+
+  @Benchmark public List<MortarScope> batched() {
+    ScopeBatch batch = new ScopeBatch(activityScope);
+    for (String name : names) {
+      batch.child(name, null);
+      if (shape == Shape.CHAIN) batch.descend();
+    }
+    return batch.create();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.os.Bundle;
+import mortar.Bundler;
+import mortar.MortarScope;
+
+/** A {@link Bundler} that does the least work it can while still touching its bundle. */
+class CountingBundler implements Bundler {
+  private final String key;
+
+  int loads;
+  int saves;
+
+  CountingBundler(String key) {
+    this.key = key;
+  }
+
+  @Override public String getMortarBundleKey() {
+    return key;
+  }
+
+  @Override public void onEnterScope(MortarScope scope) {
+  }
+
+  @Override public void onLoad(Bundle savedInstanceState) {
+    loads++;
+  }
+
+  @Override public void onSave(Bundle outState) {
+    outState.putInt(key, ++saves);
+  }
+
+  @Override public void onExitScope() {
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.os.Bundle;
+
+/**
+ * Estimates the bytes a {@link Bundle} takes when written to a {@link android.os.Parcel}, which
+ * needs a device. Follows {@code Parcel.writeValue} for the types the benchmarks write.
+ */
+final class ParcelSize {
+  private static final int INT = 4;
+
+  private ParcelSize() {
+  }
+
+  static int of(Bundle bundle) {
+    // Length and magic, then the entry count and each entry as a key and a value.
+    int size = INT + INT + INT;
+    for (String key : bundle.keySet()) {
+      size += INT + string(key);
+      size += value(bundle.get(key));
+    }
+    return size;
+  }
+
+  private static int value(Object value) {
+    // Every value is preceded by its type.
+    if (value == null) return INT;
+    if (value instanceof String) return INT + string((String) value);
+    if (value instanceof Integer || value instanceof Boolean) return INT + INT;
+    if (value instanceof Long) return INT + 8;
+    if (value instanceof Bundle) return INT + of((Bundle) value);
+    if (value instanceof byte[]) return INT + INT + padded(((byte[]) value).length);
+    throw new IllegalArgumentException("Cannot size " + value.getClass());
+  }
+
+  /** Length, then UTF-16 chars and a terminator. */
+  private static int string(String value) {
+    return INT + padded((value.length() + 1) * 2);
+  }
+
+  private static int padded(int length) {
+    return (length + 3) & ~3;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.os.Bundle;
+import java.util.concurrent.TimeUnit;
+import mortar.Mortar;
+import mortar.MortarActivityScope;
+import mortar.MortarScope;
+import mortar.Presenter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** {@link Presenter#takeView} and {@link Presenter#dropView} churn, as on every transition. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PresenterBenchmark {
+  static class SomeView {
+  }
+
+  static class SomePresenter extends Presenter<SomeView> {
+    final MortarScope scope;
+    int loads;
+
+    SomePresenter(MortarScope scope) {
+      this.scope = scope;
+    }
+
+    @Override protected MortarScope extractScope(SomeView view) {
+      return scope;
+    }
+
+    @Override protected void onLoad(Bundle savedInstanceState) {
+      loads++;
+    }
+  }
+
+  MortarScope root;
+  MortarActivityScope activityScope;
+  SomePresenter presenter;
+  SomeView first;
+  SomeView second;
+
+  @Setup public void setUp() {
+    root = Mortar.createRootScope(null);
+    activityScope = Mortar.createActivityScope(root, "activity", null);
+    activityScope.onCreate(null);
+    presenter = new SomePresenter(activityScope);
+    first = new SomeView();
+    second = new SomeView();
+  }
+
+  @TearDown public void tearDown() {
+    Mortar.destroyRootScope(root);
+  }
+
+  @Benchmark public int takeAndDropView() {
+    presenter.takeView(first);
+    presenter.dropView(first);
+    return presenter.loads;
+  }
+
+  /** A new view taken before the old one is dropped, e.g. during rotation. */
+  @Benchmark public int swapViews() {
+    presenter.takeView(first);
+    presenter.takeView(second);
+    presenter.dropView(second);
+    return presenter.loads;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.os.Bundle;
+import java.util.concurrent.TimeUnit;
+import mortar.Mortar;
+import mortar.MortarActivityScope;
+import mortar.MortarScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MortarActivityScope#onCreate} of a scope whose one bundler registers {@code bundlers}
+ * more with a child scope from its onLoad. Each of them is queued behind the others, and all are
+ * loaded once the parent is done. Time per bundler should stay flat as their number grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RegisterDuringLoadBenchmark {
+  /** Registers the others when armed. */
+  class Spawner extends CountingBundler {
+    boolean armed;
+
+    Spawner() {
+      super("spawner");
+    }
+
+    @Override public void onLoad(Bundle savedInstanceState) {
+      super.onLoad(savedInstanceState);
+      if (!armed) return;
+      for (CountingBundler bundler : others) {
+        child.register(bundler);
+      }
+    }
+  }
+
+  @Param({ "100", "1000", "10000" }) public int bundlers;
+
+  CountingBundler[] others;
+  MortarScope root;
+  MortarActivityScope activityScope;
+  MortarScope child;
+
+  @Setup(Level.Trial) public void setUpBundlers() {
+    others = new CountingBundler[bundlers];
+    for (int i = 0; i < bundlers; i++) {
+      others[i] = new CountingBundler("bundler-" + i);
+    }
+  }
+
+  @Setup(Level.Invocation) public void setUp() {
+    root = Mortar.createRootScope(null);
+    activityScope = Mortar.createActivityScope(root, "activity", null);
+    child = activityScope.createChild("child", null);
+    Spawner spawner = new Spawner();
+    activityScope.register(spawner);
+    spawner.armed = true;
+  }
+
+  @TearDown(Level.Invocation) public void tearDown() {
+    Mortar.destroyRootScope(root);
+  }
+
+  @Benchmark public MortarActivityScope onCreate() {
+    activityScope.onCreate(null);
+    return activityScope;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.os.Bundle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import mortar.Mortar;
+import mortar.MortarActivityScope;
+import mortar.MortarScope;
+import mortar.Presenter;
+import mortar.ViewModelCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Repeated rotations of a screen whose presenter turns {@code rows} records into display rows,
+ * either from scratch on every {@link Presenter#onLoad}, or once, held by a {@link
+ * ViewModelCache}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RotationBenchmark {
+  static class ListView {
+    List<String> rows;
+  }
+
+  static List<String> buildRows(int[] records) {
+    List<String> rows = new ArrayList<>(records.length);
+    for (int record : records) {
+      rows.add("Friend #" + record + " (" + Integer.toHexString(record * 31) + ")");
+    }
+    return rows;
+  }
+
+  static abstract class ListPresenter extends Presenter<ListView> {
+    final MortarScope scope;
+    final int[] records;
+
+    ListPresenter(MortarScope scope, int[] records) {
+      this.scope = scope;
+      this.records = records;
+    }
+
+    @Override protected MortarScope extractScope(ListView view) {
+      return scope;
+    }
+  }
+
+  static class RebuildingPresenter extends ListPresenter {
+    RebuildingPresenter(MortarScope scope, int[] records) {
+      super(scope, records);
+    }
+
+    @Override protected void onLoad(Bundle savedInstanceState) {
+      getView().rows = buildRows(records);
+    }
+  }
+
+  static class CachingPresenter extends ListPresenter {
+    final ViewModelCache<ListView, List<String>> model =
+        new ViewModelCache<>(this, new ViewModelCache.Binder<ListView, List<String>>() {
+          @Override public List<String> load(Bundle savedInstanceState) {
+            return buildRows(records);
+          }
+
+          @Override public void bind(ListView view, List<String> rows) {
+            view.rows = rows;
+          }
+        });
+
+    CachingPresenter(MortarScope scope, int[] records) {
+      super(scope, records);
+    }
+
+    @Override protected void onLoad(Bundle savedInstanceState) {
+      model.bind(getView(), savedInstanceState);
+    }
+  }
+
+  @Param({ "10", "1000" }) public int rows;
+
+  MortarScope root;
+  MortarActivityScope activityScope;
+  RebuildingPresenter rebuilding;
+  CachingPresenter caching;
+
+  @Setup public void setUp() {
+    root = Mortar.createRootScope(null);
+    activityScope = Mortar.createActivityScope(root, "activity", null);
+    activityScope.onCreate(null);
+    int[] records = new int[rows];
+    for (int i = 0; i < rows; i++) {
+      records[i] = i;
+    }
+    rebuilding = new RebuildingPresenter(activityScope, records);
+    caching = new CachingPresenter(activityScope, records);
+  }
+
+  @TearDown public void tearDown() {
+    Mortar.destroyRootScope(root);
+  }
+
+  @Benchmark public List<String> rotateRebuilding() {
+    return rotate(rebuilding);
+  }
+
+  @Benchmark public List<String> rotateCaching() {
+    return rotate(caching);
+  }
+
+  /** Each view is replaced by a new one, which drops it, as during rotation. */
+  private static List<String> rotate(ListPresenter presenter) {
+    ListView view = new ListView();
+    presenter.takeView(view);
+    presenter.takeView(new ListView());
+    return view.rows;
+  }
+}
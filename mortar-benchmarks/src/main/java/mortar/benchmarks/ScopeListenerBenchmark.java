@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.os.Bundle;
+import java.util.concurrent.TimeUnit;
+import mortar.Mortar;
+import mortar.MortarActivityScope;
+import mortar.MortarScope;
+import mortar.ScopeListener;
+import mortar.Scoped;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A child of an activity scope created, given a bundler, saved and destroyed, with {@code
+ * listeners} {@link ScopeListener}s on the root. With none, it should cost the same as before
+ * there were listeners at all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScopeListenerBenchmark {
+  /** Counts events, so that they can't be optimized away. */
+  static class CountingListener implements ScopeListener {
+    long events;
+
+    @Override public void onScopeCreated(MortarScope scope, long timeNanos) {
+      events++;
+    }
+
+    @Override public void onScopeDestroyed(MortarScope scope, long timeNanos) {
+      events++;
+    }
+
+    @Override public void onRegistered(MortarScope scope, Scoped scoped, long timeNanos) {
+      events++;
+    }
+
+    @Override public void onLoaded(MortarScope scope, Scoped bundler, Bundle state,
+        long startNanos, long endNanos) {
+      events++;
+    }
+
+    @Override public void onSaved(MortarScope scope, Scoped bundler, Bundle state,
+        long startNanos, long endNanos) {
+      events++;
+    }
+  }
+
+  @Param({ "0", "1" }) public int listeners;
+
+  MortarScope root;
+  MortarActivityScope activityScope;
+  Bundle outState;
+
+  @Setup public void setUp() {
+    root = Mortar.createRootScope(null);
+    for (int i = 0; i < listeners; i++) {
+      Mortar.addScopeListener(root, new CountingListener());
+    }
+    activityScope = Mortar.createActivityScope(root, "activity", null);
+    activityScope.onCreate(null);
+  }
+
+  @TearDown public void tearDown() {
+    Mortar.destroyRootScope(root);
+  }
+
+  @Benchmark public MortarScope childLifecycle() {
+    MortarScope child = activityScope.createChild("child", null);
+    child.register(new CountingBundler("bundler"));
+    outState = new Bundle();
+    activityScope.onSaveInstanceState(outState);
+    activityScope.destroyChild(child);
+    return child;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import java.util.concurrent.TimeUnit;
+import mortar.Mortar;
+import mortar.MortarActivityScope;
+import mortar.MortarScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Mortar#getScope} as views call it, against the bare {@link Context#getSystemService}
+ * lookup it used to be.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScopeLookupBenchmark {
+  /** The value of Mortar's private service name. */
+  static final String SCOPE_SERVICE = "mortar_scope";
+
+  public enum Kind {
+    /** An activity that answers for its scope. */
+    ACTIVITY,
+    /** A context made by {@link MortarScope#createContext}. */
+    SCOPE_CONTEXT,
+    /** A scope context wrapped again, e.g. for a theme. */
+    WRAPPED_SCOPE_CONTEXT
+  }
+
+  static class SomeActivity extends ContextWrapper {
+    final MortarScope scope;
+
+    SomeActivity(MortarScope scope) {
+      super(null);
+      this.scope = scope;
+    }
+
+    @Override public Object getSystemService(String name) {
+      if (Mortar.isScopeSystemService(name)) return scope;
+      return super.getSystemService(name);
+    }
+  }
+
+  @Param({ "ACTIVITY", "SCOPE_CONTEXT", "WRAPPED_SCOPE_CONTEXT" }) public Kind kind;
+
+  MortarScope root;
+  Context context;
+
+  @Setup public void setUp() {
+    root = Mortar.createRootScope(null);
+    MortarActivityScope activityScope = Mortar.createActivityScope(root, "activity", null);
+    activityScope.onCreate(null);
+    Context activity = new SomeActivity(activityScope);
+    switch (kind) {
+      case ACTIVITY:
+        context = activity;
+        break;
+      case SCOPE_CONTEXT:
+        context = activityScope.createChild("screen", null).createContext(activity);
+        break;
+      case WRAPPED_SCOPE_CONTEXT:
+        context = new ContextWrapper(
+            activityScope.createChild("screen", null).createContext(activity));
+        break;
+      default:
+        throw new AssertionError(kind);
+    }
+  }
+
+  @TearDown public void tearDown() {
+    Mortar.destroyRootScope(root);
+  }
+
+  @Benchmark public Object getSystemService() {
+    return context.getSystemService(SCOPE_SERVICE);
+  }
+
+  @Benchmark public MortarScope getScope() {
+    return Mortar.getScope(context);
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import mortar.Mortar;
+import mortar.MortarScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creation, lookup and teardown of scope trees. A {@link Shape#DEEP} tree is a single chain of
+ * {@code size} nested scopes, a {@link Shape#WIDE} tree is {@code size} siblings under one parent.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScopeTreeBenchmark {
+  public enum Shape {
+    DEEP, WIDE
+  }
+
+  /** A fresh, empty root for every invocation. */
+  @State(Scope.Thread) public static class EmptyRoot {
+    @Param({ "DEEP", "WIDE" }) public Shape shape;
+    @Param({ "10", "100", "1000" }) public int size;
+
+    String[] names;
+    MortarScope root;
+
+    @Setup(Level.Trial) public void setUpNames() {
+      names = names(size);
+    }
+
+    @Setup(Level.Invocation) public void setUp() {
+      root = Mortar.createRootScope(null);
+    }
+
+    @TearDown(Level.Invocation) public void tearDown() {
+      Mortar.destroyRootScope(root);
+    }
+  }
+
+  /** A tree that is built once and only read from. */
+  @State(Scope.Thread) public static class BuiltTree {
+    @Param({ "DEEP", "WIDE" }) public Shape shape;
+    @Param({ "10", "100", "1000" }) public int size;
+
+    String[] names;
+    MortarScope root;
+    String lastPath;
+
+    @Setup(Level.Trial) public void setUp() {
+      names = names(size);
+      root = Mortar.createRootScope(null);
+      lastPath = build(root, shape, names).getPath();
+    }
+
+    @TearDown(Level.Trial) public void tearDown() {
+      Mortar.destroyRootScope(root);
+    }
+  }
+
+  /** A tree that is rebuilt before every invocation, so that it can be torn down. */
+  @State(Scope.Thread) public static class DoomedTree {
+    @Param({ "DEEP", "WIDE" }) public Shape shape;
+    @Param({ "10", "100", "1000", "10000" }) public int size;
+
+    String[] names;
+    MortarScope root;
+    MortarScope top;
+
+    @Setup(Level.Trial) public void setUpRoot() {
+      names = names(size);
+      root = Mortar.createRootScope(null);
+    }
+
+    @Setup(Level.Invocation) public void setUp() {
+      top = root.createChild("top", null);
+      build(top, shape, names);
+    }
+
+    @TearDown(Level.Trial) public void tearDown() {
+      Mortar.destroyRootScope(root);
+    }
+  }
+
+  @Benchmark public MortarScope createChild(EmptyRoot state) {
+    return build(state.root, state.shape, state.names);
+  }
+
+  /**
+   * Resolves the last scope in the tree the way navigation code does today, by calling {@link
+   * MortarScope#findChild} once per level starting from the root.
+   */
+  @Benchmark public MortarScope findChild(BuiltTree state) {
+    MortarScope scope = state.root;
+    if (state.shape == Shape.WIDE) return scope.findChild(state.names[state.size - 1]);
+
+    for (String name : state.names) {
+      scope = scope.findChild(name);
+    }
+    return scope;
+  }
+
+  /** Resolves the same scope as {@link #findChild} through the root's path index. */
+  @Benchmark public MortarScope findScope(BuiltTree state) {
+    return state.root.findScope(state.lastPath);
+  }
+
+  @Benchmark public boolean destroyChild(DoomedTree state) {
+    state.root.destroyChild(state.top);
+    return state.top.isDestroyed();
+  }
+
+  static String[] names(int size) {
+    String[] names = new String[size];
+    for (int i = 0; i < size; i++) {
+      names[i] = "scope-" + i;
+    }
+    return names;
+  }
+
+  /** Returns the last scope created. */
+  static MortarScope build(MortarScope parent, Shape shape, String[] names) {
+    MortarScope last = parent;
+    for (String name : names) {
+      MortarScope child = parent.createChild(name, null);
+      if (shape == Shape.DEEP) parent = child;
+      last = child;
+    }
+    return last;
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar.benchmarks;
+
+import android.os.Bundle;
+import java.util.concurrent.TimeUnit;
+import mortar.Bundler;
+import mortar.CompactBundler;
+import mortar.Mortar;
+import mortar.MortarActivityScope;
+import mortar.MortarScope;
+import mortar.Scoped;
+import mortar.StateReader;
+import mortar.StateWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving and restoring an activity scope with {@code screens} child scopes of {@link
+ * #PRESENTERS_PER_SCREEN} presenters each, in nested {@link Bundle}s via {@link Bundler}s versus
+ * the flat blob of {@link CompactBundler}s. Run {@link #main} for the sizes of the saved state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StateFormatBenchmark {
+  static final int PRESENTERS_PER_SCREEN = 3;
+
+  public enum Format {
+    BUNDLE, COMPACT
+  }
+
+  /** Typical presenter state: an id, a title, a timestamp and a flag. */
+  static class NestedBundler implements Bundler {
+    final String key;
+
+    NestedBundler(String key) {
+      this.key = key;
+    }
+
+    @Override public String getMortarBundleKey() {
+      return key;
+    }
+
+    @Override public void onLoad(Bundle savedInstanceState) {
+      if (savedInstanceState != null) savedInstanceState.getString("title");
+    }
+
+    @Override public void onSave(Bundle outState) {
+      outState.putInt("id", 42);
+      outState.putString("title", "Conversation with Mortar");
+      outState.putLong("timestamp", 1420070400000L);
+      outState.putBoolean("expanded", true);
+    }
+
+    @Override public void onEnterScope(MortarScope scope) {
+    }
+
+    @Override public void onExitScope() {
+    }
+  }
+
+  static class FlatBundler implements CompactBundler {
+    final String key;
+
+    FlatBundler(String key) {
+      this.key = key;
+    }
+
+    @Override public String getMortarBundleKey() {
+      return key;
+    }
+
+    @Override public void onLoad(StateReader savedState) {
+      if (savedState != null) savedState.getString("title");
+    }
+
+    @Override public void onSave(StateWriter outState) {
+      outState.putInt("id", 42)
+          .putString("title", "Conversation with Mortar")
+          .putLong("timestamp", 1420070400000L)
+          .putBoolean("expanded", true);
+    }
+
+    @Override public void onEnterScope(MortarScope scope) {
+    }
+
+    @Override public void onExitScope() {
+    }
+  }
+
+  /** An activity scope with all of its screens and presenters, built once. */
+  @State(Scope.Thread) public static class Populated {
+    @Param({ "BUNDLE", "COMPACT" }) public Format format;
+    @Param({ "10", "100" }) public int screens;
+
+    MortarScope root;
+    MortarActivityScope activityScope;
+
+    @Setup(Level.Trial) public void setUp() {
+      root = Mortar.createRootScope(null);
+      activityScope = populate(root, format, screens, null);
+    }
+
+    @TearDown(Level.Trial) public void tearDown() {
+      Mortar.destroyRootScope(root);
+    }
+  }
+
+  /** The state saved from a {@link Populated} scope, to restore into a fresh one every time. */
+  @State(Scope.Thread) public static class Saved {
+    @Param({ "BUNDLE", "COMPACT" }) public Format format;
+    @Param({ "10", "100" }) public int screens;
+
+    Bundle savedState;
+    MortarScope root;
+
+    @Setup(Level.Trial) public void save() {
+      savedState = saveState(format, screens);
+    }
+
+    @Setup(Level.Invocation) public void setUp() {
+      root = Mortar.createRootScope(null);
+    }
+
+    @TearDown(Level.Invocation) public void tearDown() {
+      Mortar.destroyRootScope(root);
+    }
+  }
+
+  @Benchmark public Bundle save(Populated state) {
+    Bundle outState = new Bundle();
+    state.activityScope.onSaveInstanceState(outState);
+    return outState;
+  }
+
+  @Benchmark public MortarActivityScope restore(Saved state) {
+    return populate(state.root, state.format, state.screens, state.savedState);
+  }
+
+  static MortarActivityScope populate(MortarScope root, Format format, int screens,
+      Bundle savedState) {
+    MortarActivityScope activityScope = Mortar.createActivityScope(root, "activity", null);
+    activityScope.onCreate(savedState);
+    for (int s = 0; s < screens; s++) {
+      MortarScope screen = activityScope.createChild("screen-" + s, null);
+      for (int p = 0; p < PRESENTERS_PER_SCREEN; p++) {
+        String key = "com.example.mortar.screen.Presenter" + p;
+        Scoped presenter = format == Format.BUNDLE ? new NestedBundler(key) : new FlatBundler(key);
+        screen.register(presenter);
+      }
+    }
+    return activityScope;
+  }
+
+  static Bundle saveState(Format format, int screens) {
+    MortarScope root = Mortar.createRootScope(null);
+    Bundle savedState = new Bundle();
+    populate(root, format, screens, null).onSaveInstanceState(savedState);
+    // Destroying the scopes clears their state from the bundle they last saved to.
+    Bundle copy = new Bundle(savedState);
+    Mortar.destroyRootScope(root);
+    return copy;
+  }
+
+  /** Prints the estimated parcelled size of the saved state of each configuration. */
+  public static void main(String[] args) {
+    for (int screens : new int[] { 10, 100 }) {
+      for (Format format : Format.values()) {
+        System.out.println(String.format("%-7s %3d screens: %6d bytes", format, screens,
+            ParcelSize.of(saveState(format, screens))));
+      }
+    }
+  }
+}
@@ -47,8 +47,10 @@ public class Chat {
     return id;
   }
 
-  public Observable<Message> getMessage(int index) {
-    return Observable.just(messages.get(index));
+  /** Blocks while it pretends to fetch the message from a server. */
+  public Message loadMessage(int index) throws InterruptedException {
+    Thread.sleep(SLEEP_MILLIS);
+    return messages.get(index);
   }
 
   public Observable<Message> getMessages() {
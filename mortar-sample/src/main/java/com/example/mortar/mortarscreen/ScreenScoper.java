@@ -2,7 +2,6 @@ package com.example.mortar.mortarscreen;
 
 import android.content.Context;
 import android.content.res.Resources;
-import dagger.ObjectGraph;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.LinkedHashMap;
@@ -34,10 +33,14 @@ public class ScreenScoper {
   /**
    * Finds or creates the scope for the given screen, honoring its optional {@link
    * WithModuleFactory} or {@link WithModule} annotation. Note that scopes are also created
-   * for unannotated screens.
+   * for unannotated screens. The graph of a new scope is not built until something injects
+   * from it.
    */
   public MortarScope getScreenScope(Resources resources, MortarScope parentScope, final String name,
       final Object screen) {
+    MortarScope childScope = parentScope.findChild(name);
+    if (childScope != null) return childScope;
+
     ModuleFactory moduleFactory = getModuleFactory(screen);
     Object childModule;
     if (moduleFactory != NO_FACTORY) {
@@ -48,13 +51,7 @@ public class ScreenScoper {
       // objects that are annotated even if they don't appear in a module.
       childModule = null;
     }
-    ObjectGraph parentGraph = parentScope.getObjectGraph();
-    MortarScope childScope = parentScope.findChild(name);
-    if (childScope == null) {
-      ObjectGraph childGraph = Dagger1.createSubgraph(parentGraph, childModule);
-      childScope = parentScope.createChild(name, childGraph);
-    }
-    return childScope;
+    return parentScope.createLazyChild(name, Dagger1.subgraphFactory(parentScope, childModule));
   }
 
   private ModuleFactory getModuleFactory(Object screen) {
@@ -30,10 +30,13 @@ import flow.Flow;
 import flow.HasParent;
 import flow.Layout;
 import flow.Path;
+import java.util.ArrayList;
+import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import mortar.PopupPresenter;
 import mortar.ViewPresenter;
+import mortar.ViewUpdate;
 import rx.Subscription;
 import rx.functions.Action0;
 import rx.functions.Action1;
@@ -66,6 +69,15 @@ public class ChatScreen extends Path implements HasParent {
 
     private Subscription running = Subscriptions.empty();
 
+    /** Messages that arrived since the last frame, shown together at the next. */
+    private final List<Message> arrived = new ArrayList<>();
+    private final ViewUpdate<ChatView> showArrived = new ViewUpdate<ChatView>() {
+      @Override public void apply(ChatView view) {
+        view.getItems().addAll(arrived);
+        arrived.clear();
+      }
+    };
+
     @Inject
     public Presenter(Chat chat, ActionBarOwner actionBar) {
       this.chat = chat;
@@ -79,6 +91,8 @@ public class ChatScreen extends Path implements HasParent {
 
     @Override public void dropView(ChatView view) {
       confirmer.dropView(view.getConfirmerPopup());
+      // The next view subscribes afresh, and is given every message from the start.
+      if (view == getView()) arrived.clear();
       super.dropView(view);
     }
 
@@ -103,7 +117,8 @@ public class ChatScreen extends Path implements HasParent {
       running = chat.getMessages().subscribe(new Action1<Message>() {
         @Override public void call(Message message) {
           if (!hasView()) return;
-          getView().getItems().add(message);
+          arrived.add(message);
+          updateView(showArrived);
         }
       });
     }
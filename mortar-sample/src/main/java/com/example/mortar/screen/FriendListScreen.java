@@ -30,6 +30,7 @@ import flow.Path;
 import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import mortar.ViewModelCache;
 import mortar.ViewPresenter;
 
 @Layout(R.layout.friend_list_view) @WithModule(FriendListScreen.Module.class)
@@ -45,6 +46,16 @@ public class FriendListScreen extends Path implements HasParent {
   @Singleton
   public static class Presenter extends ViewPresenter<FriendListView> {
     private final List<User> friends;
+    private final ViewModelCache<FriendListView, List<User>> friendsModel =
+        new ViewModelCache<>(this, new ViewModelCache.Binder<FriendListView, List<User>>() {
+          @Override public List<User> load(Bundle savedInstanceState) {
+            return friends;
+          }
+
+          @Override public void bind(FriendListView view, List<User> friends) {
+            view.showFriends(friends);
+          }
+        });
 
     @Inject Presenter(List<User> friends) {
       this.friends = friends;
@@ -53,7 +64,7 @@ public class FriendListScreen extends Path implements HasParent {
     @Override public void onLoad(Bundle savedInstanceState) {
       super.onLoad(savedInstanceState);
       if (!hasView()) return;
-      getView().showFriends(friends);
+      friendsModel.bind(getView(), savedInstanceState);
     }
 
     public void onFriendSelected(int position) {
@@ -16,6 +16,7 @@
 package com.example.mortar.screen;
 
 import android.os.Bundle;
+import android.util.Log;
 import com.example.mortar.MortarDemoActivity;
 import com.example.mortar.R;
 import com.example.mortar.model.Chats;
@@ -27,11 +28,11 @@ import flow.Flow;
 import flow.HasParent;
 import flow.Layout;
 import flow.Path;
+import java.util.concurrent.Callable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import mortar.TaskCallback;
 import mortar.ViewPresenter;
-import rx.Observable;
-import rx.functions.Action1;
 
 @Layout(R.layout.message_view) @WithModule(MessageScreen.Module.class)
 public class MessageScreen extends Path implements HasParent {
@@ -49,33 +50,42 @@ public class MessageScreen extends Path implements HasParent {
 
   @dagger.Module(injects = MessageView.class, addsTo = MortarDemoActivity.Module.class)
   public class Module {
-    @Provides Observable<Message> provideMessage(Chats chats) {
-      return chats.getChat(chatId).getMessage(messageId);
+    @Provides Callable<Message> provideMessageLoader(final Chats chats) {
+      return new Callable<Message>() {
+        @Override public Message call() throws InterruptedException {
+          return chats.getChat(chatId).loadMessage(messageId);
+        }
+      };
     }
   }
 
   @Singleton
   public static class Presenter extends ViewPresenter<MessageView> {
-    private final Observable<Message> messageSource;
+    private static final String TAG = "MessageScreen";
+
+    private final Callable<Message> messageLoader;
 
     private Message message;
 
-    @Inject Presenter(Observable<Message> messageSource) {
-      this.messageSource = messageSource;
+    @Inject Presenter(Callable<Message> messageLoader) {
+      this.messageLoader = messageLoader;
     }
 
     @Override public void onLoad(Bundle savedInstanceState) {
       super.onLoad(savedInstanceState);
       if (!hasView()) return;
 
-      messageSource.subscribe(new Action1<Message>() {
-        @Override public void call(Message message) {
-          if (!hasView()) return;
+      // Interrupted if the view goes away first, so the load doesn't outlive the screen.
+      submit(messageLoader, new TaskCallback<MessageView, Message>() {
+        @Override public void onSuccess(MessageView view, Message message) {
           Presenter.this.message = message;
-          MessageView view = getView();
           view.setUser(message.from.name);
           view.setMessage(message.body);
         }
+
+        @Override public void onFailure(MessageView view, Throwable error) {
+          Log.w(TAG, error);
+        }
       });
     }
 
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+
+/**
+ * A {@link Bundler} with restore work that can run off the main thread, e.g. decoding a large
+ * blob from its bundle. When its scope has a {@link Mortar#setLoadExecutor load executor}, the
+ * {@link #prepareLoad} calls of every async bundler due to load are started on it together, and
+ * run in parallel with one another and with the {@link #onLoad} calls of the bundlers ahead of
+ * them. {@link #onLoad} is still called on the main thread and in registration order, once this
+ * bundler's own preparation is done. Without an executor, prepareLoad is called just before
+ * onLoad.
+ */
+public interface AsyncBundler extends Bundler {
+  /**
+   * Called before each call to {@link #onLoad}, with the same bundle, possibly on a background
+   * thread. Must not touch views, scopes, or the bundle after returning. Anything stored in fields
+   * here is visible to the onLoad that follows.
+   */
+  void prepareLoad(Bundle savedInstanceState);
+}
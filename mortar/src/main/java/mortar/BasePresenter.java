@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+
+/**
+ * What {@link Presenter} and {@link MultiViewPresenter} have in common: the bundler each
+ * registers with its views' scope, which hands the scope's calls on to the hooks below, and the
+ * {@link LeakWatchdog} that is told of the views each takes and drops.
+ */
+abstract class BasePresenter<V> {
+  /** Registered with the scope of the views, on behalf of this presenter. */
+  final Bundler registration = new IncrementalBundler() {
+    @Override public String getMortarBundleKey() {
+      return BasePresenter.this.getMortarBundleKey();
+    }
+
+    @Override public boolean isDirty() {
+      return BasePresenter.this.isDirty();
+    }
+
+    @Override public void onLoad(Bundle savedInstanceState) {
+      load(savedInstanceState);
+    }
+
+    @Override public void onSave(Bundle outState) {
+      BasePresenter.this.onSave(outState);
+    }
+
+    @Override public void onEnterScope(MortarScope scope) {
+      BasePresenter.this.onEnterScope(scope);
+    }
+
+    @Override public void onExitScope() {
+      exitScope();
+    }
+  };
+
+  BasePresenter() {
+  }
+
+  /** Called when {@link #registration} is loaded, to call onLoad if and when it should be. */
+  abstract void load(Bundle savedInstanceState);
+
+  /** Called when {@link #registration} exits its scope. Calls {@link #onExitScope}. */
+  void exitScope() {
+    onExitScope();
+  }
+
+  /** Tells the leak watchdog of the given scope's tree, if any, that the view is in use again. */
+  static void forgetView(MortarScope scope, Object view) {
+    LeakWatchdog watchdog = findLeakWatchdog(scope);
+    if (watchdog != null) watchdog.forget(view);
+  }
+
+  /**
+   * Tells the leak watchdog of the given scope's tree, if any, that the view was just dropped by
+   * the given presenter and should soon be collected.
+   */
+  static void watchDroppedView(MortarScope scope, Object view, Object presenter) {
+    LeakWatchdog watchdog = findLeakWatchdog(scope);
+    if (watchdog != null) watchdog.watch(view, "view dropped by " + presenter);
+  }
+
+  private static LeakWatchdog findLeakWatchdog(MortarScope scope) {
+    if (!(scope instanceof RealScope)) return null;
+    return ((RealScope) scope).getRoot().leakWatchdog;
+  }
+
+  protected String getMortarBundleKey() {
+    return getClass().getName();
+  }
+
+  /** Called by {@code takeView}. Given a view instance, return its {@link MortarScope}. */
+  protected abstract MortarScope extractScope(V view);
+
+  /** Like {@link Bundler#onEnterScope}. */
+  protected void onEnterScope(MortarScope scope) {
+  }
+
+  /** Like {@link Bundler#onSave}. */
+  protected void onSave(Bundle outState) {
+  }
+
+  /**
+   * Like {@link IncrementalBundler#isDirty}. Always true by default, so that {@link #onSave} is
+   * called at every save. Override to skip saves while nothing has changed.
+   */
+  protected boolean isDirty() {
+    return true;
+  }
+
+  /**
+   * Like {@link Bundler#onExitScope}. One subtlety to note is that a presenter may be created
+   * by a higher level scope than the one it is registered with, in which case it may receive
+   * multiple calls to this method.
+   */
+  protected void onExitScope() {
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+/**
+ * How long one bundler of one scope took to load and save, and how big the state it saved was.
+ * Bundlers are told apart by {@link Bundler#getMortarBundleKey}, so the successive instances
+ * that a scope recreated on each rotation share their stats. See {@link BundlerTimings}.
+ */
+public final class BundlerStats {
+  private final String scopePath;
+  private final String key;
+  final Histogram loadNanos;
+  final Histogram saveNanos;
+  final Histogram savedBytes;
+
+  BundlerStats(String scopePath, String key) {
+    this(scopePath, key, new Histogram(), new Histogram(), new Histogram());
+  }
+
+  private BundlerStats(String scopePath, String key, Histogram loadNanos, Histogram saveNanos,
+      Histogram savedBytes) {
+    this.scopePath = scopePath;
+    this.key = key;
+    this.loadNanos = loadNanos;
+    this.saveNanos = saveNanos;
+    this.savedBytes = savedBytes;
+  }
+
+  BundlerStats copy() {
+    return new BundlerStats(scopePath, key, loadNanos.copy(), saveNanos.copy(),
+        savedBytes.copy());
+  }
+
+  /** Returns the {@link MortarScope#getPath path} of the bundler's scope. */
+  public String getScopePath() {
+    return scopePath;
+  }
+
+  /** Returns the bundler's {@link Bundler#getMortarBundleKey key}. */
+  public String getKey() {
+    return key;
+  }
+
+  /** Returns the durations of the bundler's onLoad calls, in nanoseconds. */
+  public Histogram getLoadNanos() {
+    return loadNanos;
+  }
+
+  /** Returns the durations of the bundler's onSave calls, in nanoseconds. */
+  public Histogram getSaveNanos() {
+    return saveNanos;
+  }
+
+  /**
+   * Returns the sizes of the bundles the bundler saved, in parcelled bytes. Empty unless sizes
+   * were asked for, and never recorded for {@link CompactBundler}s.
+   */
+  public Histogram getSavedBytes() {
+    return savedBytes;
+  }
+
+  @Override public String toString() {
+    return "BundlerStats{"
+        + "scopePath='" + scopePath + '\''
+        + ", key='" + key + '\''
+        + ", loadNanos=" + loadNanos
+        + ", saveNanos=" + saveNanos
+        + ", savedBytes=" + savedBytes
+        + '}';
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each bundler in a tree takes to load and save, and optionally how big its
+ * saved state is, so that the one making a rotation janky can be found. Enabled per tree by
+ * {@link Mortar#enableBundlerTiming}. Stats outlive their scopes, so that those of an activity
+ * scope add up across the activity's instances; call {@link #reset} to start over.
+ */
+public final class BundlerTimings {
+  /** Measures bundles when sizes are wanted, null otherwise. */
+  private final StateSpill.Codec sizer;
+  /** Stats by scope path, then by bundle key, in the order they were first seen. */
+  private final Map<String, Map<String, BundlerStats>> stats = new LinkedHashMap<>();
+
+  final ScopeListener listener = new ScopeListener() {
+    @Override public void onScopeCreated(MortarScope scope, long timeNanos) {
+    }
+
+    @Override public void onScopeDestroyed(MortarScope scope, long timeNanos) {
+    }
+
+    @Override public void onRegistered(MortarScope scope, Scoped scoped, long timeNanos) {
+    }
+
+    @Override public void onLoaded(MortarScope scope, Scoped bundler, Bundle state,
+        long startNanos, long endNanos) {
+      recordLoad(scope, bundler, endNanos - startNanos);
+    }
+
+    @Override public void onSaved(MortarScope scope, Scoped bundler, Bundle state,
+        long startNanos, long endNanos) {
+      // Measured before taking the lock, as parcelling a large bundle is slow.
+      long bytes = -1;
+      if (sizer != null && state != null) {
+        byte[] encoded = sizer.encode(state);
+        if (encoded != null) bytes = encoded.length;
+      }
+      recordSave(scope, bundler, endNanos - startNanos, bytes);
+    }
+  };
+
+  BundlerTimings(StateSpill.Codec sizer) {
+    this.sizer = sizer;
+  }
+
+  /** Returns true if saved bundles are measured. */
+  public boolean isMeasuringSizes() {
+    return sizer != null;
+  }
+
+  /**
+   * Returns a copy of the stats recorded so far, by scope path and then by bundle key, in the
+   * order they were first recorded. Safe to call from any thread.
+   */
+  public synchronized Map<String, Map<String, BundlerStats>> snapshot() {
+    Map<String, Map<String, BundlerStats>> copy = new LinkedHashMap<>();
+    for (Map.Entry<String, Map<String, BundlerStats>> scope : stats.entrySet()) {
+      Map<String, BundlerStats> bundlers = new LinkedHashMap<>();
+      for (Map.Entry<String, BundlerStats> bundler : scope.getValue().entrySet()) {
+        bundlers.put(bundler.getKey(), bundler.getValue().copy());
+      }
+      copy.put(scope.getKey(), Collections.unmodifiableMap(bundlers));
+    }
+    return Collections.unmodifiableMap(copy);
+  }
+
+  /** Forgets everything recorded so far. */
+  public synchronized void reset() {
+    stats.clear();
+  }
+
+  private synchronized void recordLoad(MortarScope scope, Scoped bundler, long nanos) {
+    statsOf(scope, bundler).loadNanos.record(nanos);
+  }
+
+  private synchronized void recordSave(MortarScope scope, Scoped bundler, long nanos,
+      long bytes) {
+    BundlerStats bundlerStats = statsOf(scope, bundler);
+    bundlerStats.saveNanos.record(nanos);
+    if (bytes >= 0) bundlerStats.savedBytes.record(bytes);
+  }
+
+  private BundlerStats statsOf(MortarScope scope, Scoped bundler) {
+    String path = scope.getPath();
+    Map<String, BundlerStats> bundlers = stats.get(path);
+    if (bundlers == null) {
+      bundlers = new LinkedHashMap<>();
+      stats.put(path, bundlers);
+    }
+
+    String key = bundler instanceof Bundler ? ((Bundler) bundler).getMortarBundleKey()
+        : ((CompactBundler) bundler).getMortarBundleKey();
+    BundlerStats bundlerStats = bundlers.get(key);
+    if (bundlerStats == null) {
+      bundlerStats = new BundlerStats(path, key);
+      bundlers.put(key, bundlerStats);
+    }
+    return bundlerStats;
+  }
+
+  @Override public synchronized String toString() {
+    StringBuilder builder = new StringBuilder("BundlerTimings{");
+    for (Map<String, BundlerStats> bundlers : stats.values()) {
+      for (BundlerStats bundlerStats : bundlers.values()) {
+        builder.append("\n  ").append(bundlerStats);
+      }
+    }
+    return builder.append(stats.isEmpty() ? "}" : "\n}").toString();
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+/**
+ * Like a {@link Bundler}, but writes its state to a {@link StateWriter} instead of a nested
+ * {@link android.os.Bundle}. The state of all the compact bundlers below an activity scope is
+ * saved as a single flat blob, much smaller than the tree of Bundles the same state would
+ * otherwise take. Register one with {@link MortarActivityScope#register}; its key must be unique
+ * among the compact bundlers of its scope.
+ */
+public interface CompactBundler extends Scoped {
+  /** Identifies the state passed to this instance via {@link #onLoad} and {@link #onSave}. */
+  String getMortarBundleKey();
+
+  /**
+   * Called at the same times as {@link Bundler#onLoad}.
+   *
+   * @param savedState the state written by the most recent call to {@link #onSave}, or null if
+   * that has never happened.
+   */
+  void onLoad(StateReader savedState);
+
+  /** Called at the same times as {@link Bundler#onSave}. */
+  void onSave(StateWriter outState);
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * The flat binary form of the state written by {@link CompactBundler}s. Each save of an activity
+ * scope writes a single blob holding a record for every compact bundler below it, keyed by the
+ * bundler's path relative to that scope. The segments of record paths and field keys are
+ * interned in one string table at the head of the blob, so that e.g. the same presenter class in
+ * many screens costs its name once.
+ *
+ * <pre>
+ * blob   := MAGIC VERSION stringCount string* recordCount record*
+ * string := length utf8Bytes
+ * record := segmentCount segmentId* fieldCount field*
+ * field  := keyId type value
+ * </pre>
+ *
+ * Counts, lengths, ids and ints are unsigned varints, longs and ints zig-zag encoded first.
+ */
+final class CompactState {
+  /** The key under which the blob is stored in the activity's Bundle. */
+  static final String BUNDLE_KEY = "mortar.CompactState";
+
+  private static final int MAGIC = 0x4d4f5254; // "MORT"
+  private static final int VERSION = 1;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  static final byte BOOLEAN = 1;
+  static final byte INT = 2;
+  static final byte LONG = 3;
+  static final byte FLOAT = 4;
+  static final byte DOUBLE = 5;
+  static final byte STRING = 6;
+  static final byte BYTES = 7;
+
+  private CompactState() {
+  }
+
+  /** Collects the records of one save. */
+  static final class Encoder {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Buffer body = new Buffer();
+    private final Buffer record = new Buffer();
+    private final StateWriter writer = new StateWriter(this);
+    private int records;
+    private int fields;
+
+    /** Returns the writer for a new record, which is open until {@link #endRecord}. */
+    StateWriter beginRecord(String path) {
+      if (writer.open) throw new IllegalStateException("Record already open");
+      String[] segments = path.split(MortarScope.PATH_SEPARATOR, -1);
+      body.writeVarint(segments.length);
+      for (String segment : segments) {
+        body.writeVarint(intern(segment));
+      }
+      record.reset();
+      fields = 0;
+      writer.open = true;
+      return writer;
+    }
+
+    void endRecord() {
+      writer.open = false;
+      body.writeVarint(fields);
+      body.write(record.bytes, 0, record.size);
+      records++;
+    }
+
+    /** Returns the buffer for the value of a new field in the open record. */
+    Buffer field(String key, byte type) {
+      if (!writer.open) throw new IllegalStateException("Cannot write outside of onSave");
+      record.writeVarint(intern(key));
+      record.writeByte(type);
+      fields++;
+      return record;
+    }
+
+    boolean isEmpty() {
+      return records == 0;
+    }
+
+    byte[] encode() {
+      Buffer out = new Buffer();
+      out.writeFixed32(MAGIC);
+      out.writeVarint(VERSION);
+      out.writeVarint(strings.size());
+      for (String string : strings) {
+        out.writeString(string);
+      }
+      out.writeVarint(records);
+      out.write(body.bytes, 0, body.size);
+      return Arrays.copyOf(out.bytes, out.size);
+    }
+
+    private int intern(String string) {
+      Integer id = ids.get(string);
+      if (id == null) {
+        id = strings.size();
+        ids.put(string, id);
+        strings.add(string);
+      }
+      return id;
+    }
+  }
+
+  /** Returns the records of the given blob by path. */
+  static Map<String, StateReader> decode(byte[] blob) {
+    Cursor in = new Cursor(blob);
+    if (in.readFixed32() != MAGIC) throw new IllegalArgumentException("Not compact state");
+    int version = in.readVarint();
+    if (version != VERSION) {
+      throw new IllegalArgumentException(format("Unknown compact state version %d", version));
+    }
+
+    String[] strings = new String[in.readVarint()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = in.readString();
+    }
+
+    int records = in.readVarint();
+    Map<String, StateReader> byPath = new HashMap<>(records * 2);
+    StringBuilder path = new StringBuilder();
+    for (int r = 0; r < records; r++) {
+      path.setLength(0);
+      int segments = in.readVarint();
+      for (int i = 0; i < segments; i++) {
+        if (i > 0) path.append(MortarScope.PATH_SEPARATOR);
+        path.append(strings[in.readVarint()]);
+      }
+      int fields = in.readVarint();
+      Map<String, Object> values = new HashMap<>(fields * 2);
+      for (int f = 0; f < fields; f++) {
+        String key = strings[in.readVarint()];
+        values.put(key, in.readValue());
+      }
+      byPath.put(path.toString(), new StateReader(values));
+    }
+    return byPath;
+  }
+
+  static final class Buffer {
+    byte[] bytes = new byte[64];
+    int size;
+
+    void reset() {
+      size = 0;
+    }
+
+    void writeByte(int b) {
+      ensure(1);
+      bytes[size++] = (byte) b;
+    }
+
+    void writeVarint(int value) {
+      while ((value & ~0x7f) != 0) {
+        writeByte((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      writeByte(value);
+    }
+
+    void writeVarint64(long value) {
+      while ((value & ~0x7fL) != 0) {
+        writeByte((int) (value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      writeByte((int) value);
+    }
+
+    void writeFixed32(int value) {
+      ensure(4);
+      bytes[size++] = (byte) (value >>> 24);
+      bytes[size++] = (byte) (value >>> 16);
+      bytes[size++] = (byte) (value >>> 8);
+      bytes[size++] = (byte) value;
+    }
+
+    void writeFixed64(long value) {
+      writeFixed32((int) (value >>> 32));
+      writeFixed32((int) value);
+    }
+
+    void writeString(String value) {
+      byte[] utf8 = value.getBytes(UTF_8);
+      writeVarint(utf8.length);
+      write(utf8, 0, utf8.length);
+    }
+
+    void write(byte[] source, int offset, int length) {
+      ensure(length);
+      System.arraycopy(source, offset, bytes, size, length);
+      size += length;
+    }
+
+    private void ensure(int more) {
+      if (size + more > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+      }
+    }
+  }
+
+  private static final class Cursor {
+    final byte[] bytes;
+    int position;
+
+    Cursor(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    Object readValue() {
+      byte type = bytes[position++];
+      switch (type) {
+        case BOOLEAN:
+          return bytes[position++] != 0;
+        case INT:
+          int i = readVarint();
+          return (i >>> 1) ^ -(i & 1);
+        case LONG:
+          long l = readVarint64();
+          return (l >>> 1) ^ -(l & 1);
+        case FLOAT:
+          return Float.intBitsToFloat(readFixed32());
+        case DOUBLE:
+          return Double.longBitsToDouble(readFixed64());
+        case STRING:
+          return readString();
+        case BYTES:
+          int length = readVarint();
+          byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+          position += length;
+          return value;
+        default:
+          throw new IllegalArgumentException(format("Unknown compact state type %d", type));
+      }
+    }
+
+    int readVarint() {
+      return (int) readVarint64();
+    }
+
+    long readVarint64() {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = bytes[position++];
+        value |= (long) (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) return value;
+      }
+    }
+
+    int readFixed32() {
+      return (bytes[position++] & 0xff) << 24
+          | (bytes[position++] & 0xff) << 16
+          | (bytes[position++] & 0xff) << 8
+          | (bytes[position++] & 0xff);
+    }
+
+    long readFixed64() {
+      return (long) readFixed32() << 32 | (readFixed32() & 0xffffffffL);
+    }
+
+    String readString() {
+      int length = readVarint();
+      String value = new String(bytes, position, length, UTF_8);
+      position += length;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.view.Choreographer;
+
+/**
+ * Tells {@link Presenter}s when a display frame starts, so that they can apply the view updates
+ * they have queued once a frame. {@link #CHOREOGRAPHER} follows the display, and {@link
+ * ManualFrameClock} lets tests decide when frames happen.
+ */
+public interface FrameClock {
+  /** Calls the given callback once, at the start of the next frame, on the main thread. */
+  void postFrameCallback(Choreographer.FrameCallback callback);
+
+  /** Cancels a callback posted earlier, if it has yet to be called. */
+  void removeFrameCallback(Choreographer.FrameCallback callback);
+
+  /** The main thread's {@link Choreographer}. Must only be used from the main thread. */
+  FrameClock CHOREOGRAPHER = new FrameClock() {
+    @Override public void postFrameCallback(Choreographer.FrameCallback callback) {
+      Choreographer.getInstance().postFrameCallback(callback);
+    }
+
+    @Override public void removeFrameCallback(Choreographer.FrameCallback callback) {
+      Choreographer.getInstance().removeFrameCallback(callback);
+    }
+  };
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.content.Context;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the heap taken by what is reachable from the objects it is asked to {@link #measure},
+ * counting each object once however many times it is reached, by this call or an earlier one.
+ * Sizes assume a compact 32-bit heap like ART's: 8 byte headers, 4 byte references, objects
+ * padded to 8 bytes. Does not follow into contexts, classes, threads, scopes or the referents of
+ * weak and soft references, none of which a scope can be said to retain.
+ */
+final class HeapEstimator {
+  private static final int HEADER = 8;
+  private static final int ARRAY_HEADER = 12;
+  private static final int REFERENCE = 4;
+
+  private final Map<Object, Object> seen = new IdentityHashMap<>();
+  private final Deque<Object> toVisit = new ArrayDeque<>();
+  private final Map<Class<?>, Layout> layouts = new HashMap<>();
+
+  /** The size of instances of a class, and the reference fields to follow out of them. */
+  private static final class Layout {
+    final long size;
+    final Field[] references;
+
+    Layout(long size, Field[] references) {
+      this.size = size;
+      this.references = references;
+    }
+  }
+
+  /** Returns the bytes reachable from the given object that no earlier call reached. */
+  long measure(Object object) {
+    long total = 0;
+    push(object);
+    while (!toVisit.isEmpty()) {
+      total += visit(toVisit.pop());
+    }
+    return total;
+  }
+
+  private void push(Object object) {
+    if (object == null || isBoundary(object) || seen.put(object, object) != null) return;
+    toVisit.push(object);
+  }
+
+  private static boolean isBoundary(Object object) {
+    return object instanceof Context
+        || object instanceof Class
+        || object instanceof ClassLoader
+        || object instanceof Thread
+        || object instanceof MortarScope;
+  }
+
+  private long visit(Object object) {
+    Class<?> type = object.getClass();
+    if (type.isArray()) return visitArray(object, type.getComponentType());
+
+    Layout layout = layoutOf(type);
+    for (Field field : layout.references) {
+      try {
+        push(field.get(object));
+      } catch (IllegalAccessException ignored) {
+      }
+    }
+    return layout.size;
+  }
+
+  private long visitArray(Object array, Class<?> componentType) {
+    int length = Array.getLength(array);
+    if (componentType.isPrimitive()) {
+      return padded(ARRAY_HEADER + (long) length * sizeOf(componentType));
+    }
+
+    Object[] elements = (Object[]) array;
+    for (Object element : elements) {
+      push(element);
+    }
+    return padded(ARRAY_HEADER + (long) length * REFERENCE);
+  }
+
+  private Layout layoutOf(Class<?> type) {
+    Layout layout = layouts.get(type);
+    if (layout != null) return layout;
+
+    long size = HEADER;
+    List<Field> references = new ArrayList<>();
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) continue;
+
+        Class<?> fieldType = field.getType();
+        size += sizeOf(fieldType);
+        if (fieldType.isPrimitive()) continue;
+        if (c == Reference.class && field.getName().equals("referent")) continue;
+        try {
+          field.setAccessible(true);
+          references.add(field);
+        } catch (RuntimeException e) {
+          // Sealed off from reflection, so only its own size counts.
+        }
+      }
+    }
+    layout = new Layout(padded(size), references.toArray(new Field[references.size()]));
+    layouts.put(type, layout);
+    return layout;
+  }
+
+  private static int sizeOf(Class<?> type) {
+    if (type == long.class || type == double.class) return 8;
+    if (type == int.class || type == float.class) return 4;
+    if (type == short.class || type == char.class) return 2;
+    if (type == byte.class || type == boolean.class) return 1;
+    return REFERENCE;
+  }
+
+  private static long padded(long size) {
+    return (size + 7) & ~7L;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.Arrays;
+
+/**
+ * Counts of non-negative samples in power-of-two buckets: bucket 0 holds zeros, and bucket {@code
+ * i} the samples from {@code 2^(i-1)} up to {@code 2^i - 1}. Cheap to record into and small
+ * enough to keep one per bundler, at the price of percentiles that are only good to within a
+ * factor of two. See {@link BundlerStats}.
+ */
+public final class Histogram {
+  static final int BUCKETS = 64;
+
+  private final long[] buckets = new long[BUCKETS];
+  private long count;
+  private long total;
+  private long max;
+
+  Histogram() {
+  }
+
+  private Histogram(Histogram original) {
+    System.arraycopy(original.buckets, 0, buckets, 0, BUCKETS);
+    count = original.count;
+    total = original.total;
+    max = original.max;
+  }
+
+  void record(long sample) {
+    if (sample < 0) sample = 0;
+    buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(sample))]++;
+    count++;
+    total += sample;
+    if (sample > max) max = sample;
+  }
+
+  Histogram copy() {
+    return new Histogram(this);
+  }
+
+  /** Returns the number of samples recorded. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns the sum of the samples recorded. */
+  public long getTotal() {
+    return total;
+  }
+
+  /** Returns the largest sample recorded, or 0 if there are none. */
+  public long getMax() {
+    return max;
+  }
+
+  /** Returns the mean of the samples recorded, or 0 if there are none. */
+  public long getMean() {
+    return count == 0 ? 0 : total / count;
+  }
+
+  /**
+   * Returns a value that at least the given fraction of the samples do not exceed: the top of the
+   * bucket holding that share, or {@link #getMax} if that is lower. 0 if there are no samples.
+   */
+  public long getPercentile(double fraction) {
+    if (fraction < 0 || fraction > 1) {
+      throw new IllegalArgumentException("fraction must be within [0, 1]: " + fraction);
+    }
+    if (count == 0) return 0;
+
+    long wanted = Math.max(1, (long) Math.ceil(fraction * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets[i];
+      if (seen >= wanted) return Math.min(max, getBucketLimit(i));
+    }
+    return max;
+  }
+
+  /** Returns the number of samples in each bucket, see {@link #getBucketLimit}. */
+  public long[] getBucketCounts() {
+    return Arrays.copyOf(buckets, BUCKETS);
+  }
+
+  /** Returns the largest sample that falls into the given bucket. */
+  public static long getBucketLimit(int bucket) {
+    if (bucket == 0) return 0;
+    if (bucket >= BUCKETS - 1) return Long.MAX_VALUE;
+    return (1L << bucket) - 1;
+  }
+
+  @Override public String toString() {
+    return "Histogram{"
+        + "count=" + count
+        + ", mean=" + getMean()
+        + ", p50=" + getPercentile(0.5)
+        + ", p90=" + getPercentile(0.9)
+        + ", p99=" + getPercentile(0.99)
+        + ", max=" + max
+        + '}';
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+/**
+ * A {@link Bundler} that knows when its state has changed. {@link
+ * MortarActivityScope#onSaveInstanceState} only calls {@link #onSave} on one that is dirty, or
+ * that has not yet saved into this scope, and otherwise hands on the bundle it wrote last time.
+ */
+public interface IncrementalBundler extends Bundler {
+  /**
+   * Returns true if state has changed since the last call to {@link #onSave}. Implementations
+   * typically set a flag when they change and clear it from onSave.
+   */
+  boolean isDirty();
+}
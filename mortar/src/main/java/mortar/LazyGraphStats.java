@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Running counts of the scopes in one tree that were created by {@link
+ * MortarScope#createLazyChild}. See {@link Mortar#getLazyGraphStats}.
+ */
+public final class LazyGraphStats {
+  final AtomicInteger created = new AtomicInteger();
+  final AtomicInteger materialized = new AtomicInteger();
+  final AtomicInteger skipped = new AtomicInteger();
+
+  LazyGraphStats() {
+  }
+
+  /** Returns the number of lazy scopes created. */
+  public int getCreated() {
+    return created.get();
+  }
+
+  /** Returns the number of lazy scopes whose object graphs have been built. */
+  public int getMaterialized() {
+    return materialized.get();
+  }
+
+  /** Returns the number of lazy scopes destroyed without ever building their object graphs. */
+  public int getSkipped() {
+    return skipped.get();
+  }
+
+  @Override public String toString() {
+    return "LazyGraphStats{"
+        + "created=" + getCreated()
+        + ", materialized=" + getMaterialized()
+        + ", skipped=" + getSkipped()
+        + '}';
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Watches what should soon be garbage: scopes once they are destroyed, the contexts they made,
+ * and views once their {@link Presenter} drops them. Anything still reachable after {@link
+ * #getGcsBeforeReport()} garbage collections is reported to the {@link Listener}, once. Enabled
+ * per tree by {@link Mortar#enableLeakWatchdog}.
+ *
+ * <p>Collections are noticed by {@link #check}, at most one per call, so call it regularly, e.g.
+ * from an idle handler. A view that a presenter takes back is no longer watched, but one that is
+ * dropped and kept for later, e.g. in a back stack, is reported like any other.
+ */
+public final class LeakWatchdog {
+  /** Told of suspected leaks, on the thread that called {@link #check}. */
+  public interface Listener {
+    /**
+     * Called with an object that is still reachable after the given number of garbage
+     * collections, e.g. to dump the heap. Don't keep a reference to it.
+     */
+    void onLeakSuspected(Object leaked, String description, int gcs);
+  }
+
+  /** Counts garbage collections for {@link #check}. Tests drive their own. */
+  interface GcCounter {
+    /** Returns the number of collections noticed so far. Called with the watchdog locked. */
+    int count();
+  }
+
+  /** Notices at most one collection per call: the one that cleared its sentinel. */
+  static final class SentinelGcCounter implements GcCounter {
+    /** Cleared by the first collection after it was made. */
+    private WeakReference<Object> sentinel = new WeakReference<>(new Object());
+    private int count;
+
+    @Override public int count() {
+      if (sentinel.get() == null) {
+        count++;
+        sentinel = new WeakReference<>(new Object());
+      }
+      return count;
+    }
+  }
+
+  /** How long {@link #gcAndCheck} waits for a collection to be noticed. */
+  private static final long GC_WAIT_MILLIS = 1000;
+
+  /** A watched object, and the number of collections that had been noticed when it was. */
+  private static final class Watched extends WeakReference<Object> {
+    final String description;
+    final int sinceGc;
+
+    Watched(Object referent, String description, int sinceGc, ReferenceQueue<Object> queue) {
+      super(referent, queue);
+      this.description = description;
+      this.sinceGc = sinceGc;
+    }
+  }
+
+  private final int gcsBeforeReport;
+  private final Listener listener;
+  private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+  private final Set<Watched> watched = new LinkedHashSet<>();
+  private final GcCounter gcCounter;
+
+  private int gcs;
+
+  LeakWatchdog(int gcsBeforeReport, Listener listener) {
+    this(gcsBeforeReport, listener, new SentinelGcCounter());
+  }
+
+  LeakWatchdog(int gcsBeforeReport, Listener listener, GcCounter gcCounter) {
+    if (gcsBeforeReport < 1) {
+      throw new IllegalArgumentException("gcsBeforeReport must be positive: " + gcsBeforeReport);
+    }
+    if (listener == null) throw new NullPointerException("listener must not be null");
+    this.gcsBeforeReport = gcsBeforeReport;
+    this.listener = listener;
+    this.gcCounter = gcCounter;
+  }
+
+  public int getGcsBeforeReport() {
+    return gcsBeforeReport;
+  }
+
+  /** Returns the number of garbage collections noticed so far. */
+  public synchronized int getGcs() {
+    return gcs;
+  }
+
+  /** Returns the number of objects being watched that have not yet been collected or reported. */
+  public synchronized int getWatchedCount() {
+    forgetCollected();
+    return watched.size();
+  }
+
+  synchronized void watch(Object object, String description) {
+    forgetCollected();
+    watched.add(new Watched(object, description, gcs, queue));
+  }
+
+  /** Stops watching the given object, e.g. because it was put back to use. */
+  synchronized void forget(Object object) {
+    Iterator<Watched> i = watched.iterator();
+    while (i.hasNext()) {
+      if (i.next().get() == object) i.remove();
+    }
+  }
+
+  /**
+   * Notices a garbage collection if there was one since the last call, and reports everything
+   * that has been watched for enough of them without being collected.
+   */
+  public void check() {
+    List<Object> leaks = new ArrayList<>();
+    List<String> descriptions = new ArrayList<>();
+    int gcsNow;
+    synchronized (this) {
+      forgetCollected();
+      gcs = gcCounter.count();
+      gcsNow = gcs;
+
+      Iterator<Watched> i = watched.iterator();
+      while (i.hasNext()) {
+        Watched w = i.next();
+        if (gcs - w.sinceGc < gcsBeforeReport) continue;
+        Object leaked = w.get();
+        if (leaked != null) {
+          leaks.add(leaked);
+          descriptions.add(w.description);
+        }
+        i.remove();
+      }
+    }
+
+    for (int i = 0; i < leaks.size(); i++) {
+      listener.onLeakSuspected(leaks.get(i), descriptions.get(i), gcsNow);
+    }
+  }
+
+  /**
+   * Asks for garbage collections until one is noticed, then {@link #check checks}. The VM may
+   * ignore the requests, so this gives up after a second. Only for debug screens and tests.
+   */
+  public void gcAndCheck() {
+    int before;
+    synchronized (this) {
+      before = gcs;
+    }
+    long deadline = System.currentTimeMillis() + GC_WAIT_MILLIS;
+    while (true) {
+      Runtime.getRuntime().gc();
+      System.runFinalization();
+      synchronized (this) {
+        if (gcCounter.count() != before) break;
+      }
+      if (System.currentTimeMillis() >= deadline) break;
+      try {
+        // References are cleared by the collector a little after the fact.
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    check();
+  }
+
+  /** Must hold the lock. */
+  private void forgetCollected() {
+    Object collected;
+    while ((collected = queue.poll()) != null) {
+      watched.remove(collected);
+    }
+  }
+
+  @Override public synchronized String toString() {
+    return "LeakWatchdog{"
+        + "gcsBeforeReport=" + gcsBeforeReport
+        + ", gcs=" + gcs
+        + ", watched=" + watched.size()
+        + '}';
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.view.Choreographer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link FrameClock} for tests, whose frames only happen when {@link #advanceFrame} is called.
+ * Frames are 60 per second of its own time, which starts at zero.
+ */
+public final class ManualFrameClock implements FrameClock {
+  public static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+  private final List<Choreographer.FrameCallback> callbacks = new ArrayList<>();
+  private long frameTimeNanos;
+
+  @Override public void postFrameCallback(Choreographer.FrameCallback callback) {
+    if (callback == null) throw new NullPointerException("callback must not be null");
+    callbacks.add(callback);
+  }
+
+  @Override public void removeFrameCallback(Choreographer.FrameCallback callback) {
+    callbacks.remove(callback);
+  }
+
+  /** Returns the number of callbacks waiting for the next frame. */
+  public int getPendingCount() {
+    return callbacks.size();
+  }
+
+  /** Returns the time of the last frame, zero if there hasn't been one. */
+  public long getFrameTimeNanos() {
+    return frameTimeNanos;
+  }
+
+  /**
+   * Moves time on by a frame and calls the callbacks that were waiting for it. Callbacks they post
+   * wait for the frame after.
+   */
+  public void advanceFrame() {
+    frameTimeNanos += FRAME_NANOS;
+    List<Choreographer.FrameCallback> due = new ArrayList<>(callbacks);
+    callbacks.clear();
+    for (Choreographer.FrameCallback callback : due) {
+      callback.doFrame(frameTimeNanos);
+    }
+  }
+}
@@ -17,6 +17,8 @@ package mortar;
 
 import android.app.Activity;
 import android.content.Context;
+import java.io.File;
+import java.util.concurrent.Executor;
 
 import static java.lang.String.format;
 
@@ -33,7 +35,19 @@ public class Mortar {
    * by a custom {@link android.app.Application}.
    */
   public static MortarScope createRootScope(Object objectGraph) {
-    return new RealScope(objectGraph);
+    return new RealScope(objectGraph, false);
+  }
+
+  /**
+   * Like {@link #createRootScope(Object)}, but the {@link MortarScope} methods of the new tree
+   * may be called from any thread, e.g. to {@link MortarScope#findChild find} a scope or {@link
+   * MortarScope#register register} with it from background work. Lookups never block: changes
+   * to the tree are made on copies under a single lock and then published. {@link
+   * MortarActivityScope}s in the tree still deal in {@link android.os.Bundle}s, and so must be
+   * created, destroyed and driven from the main thread.
+   */
+  public static MortarScope createConcurrentRootScope(Object objectGraph) {
+    return new RealScope(objectGraph, true);
   }
 
   /**
@@ -49,14 +63,139 @@ public class Mortar {
    */
   public static MortarActivityScope createActivityScope(MortarScope parentScope, String childName,
       Object childGraph) {
-    RealScope unwrapped = (RealScope) parentScope.createChild(childName, childGraph);
-    RealActivityScope activityScope;
     RealScope realParentScope = (RealScope) parentScope;
-    activityScope = new RealActivityScope(unwrapped);
+    RealScope unwrapped = realParentScope.addChild(childName, childGraph, null);
+    RealActivityScope activityScope = new RealActivityScope(unwrapped);
     realParentScope.replaceChild(childName, activityScope);
+    activityScope.announceCreated();
     return activityScope;
   }
 
+  /**
+   * Keeps the saved state of oversized {@link Bundler}s below the given activity scope out of the
+   * Bundle, to stay clear of the binder transaction limit. When a bundler's state is larger than
+   * {@code maxBytes} parcelled, it is written to a file in the context's cache directory, and the
+   * Bundle gets a small token for it instead. The state is read back when the bundler next loads,
+   * from memory unless the process has died. Call this before {@link
+   * MortarActivityScope#onCreate}.
+   */
+  public static void enableStateSpill(MortarActivityScope activityScope, Context context,
+      int maxBytes) {
+    File dir = new File(context.getCacheDir(), "mortar-state");
+    RealActivityScope realActivityScope = (RealActivityScope) activityScope;
+    realActivityScope.stateSpill = new StateSpill(dir, maxBytes, StateSpill.PARCEL);
+  }
+
+  /**
+   * Has the {@link AsyncBundler}s below the given activity scope prepare their loads on the given
+   * executor, which should have a thread for each that is to run in parallel. Pass null to go
+   * back to preparing them on the main thread, just before they load.
+   */
+  public static void setLoadExecutor(MortarActivityScope activityScope, Executor executor) {
+    ((RealActivityScope) activityScope).loadExecutor = executor;
+  }
+
+  /**
+   * Returns the live counts of {@link MortarScope#createLazyChild lazy} scopes created in the
+   * tree that holds the given scope, including how many were destroyed before anyone asked for
+   * their graphs.
+   */
+  public static LazyGraphStats getLazyGraphStats(MortarScope scope) {
+    return ((RealScope) scope).getRoot().lazyGraphStats;
+  }
+
+  /**
+   * Estimates the heap pinned by the given scope and each of its descendants: their object
+   * graphs, their registrants and the LayoutInflaters cached by their contexts. Walks everything
+   * those reach, and everything their ancestors reach as well, so it is slow and allocates a
+   * lot; meant for debug screens and leak hunts, not for production paths.
+   *
+   * @throws IllegalStateException if the scope has been destroyed
+   */
+  public static ScopeFootprint measureFootprint(MortarScope scope) {
+    return ScopeFootprint.measure((RealScope) scope);
+  }
+
+  /**
+   * Turns on {@link ScopeRecycler recycling} of the graphs of {@link MortarScope#createLazyChild
+   * lazy} scopes in the given root's tree, keeping at most {@code maxSize} of them. Returns the
+   * recycler, which reports hits and misses. Redundant calls return the original recycler.
+   */
+  public static ScopeRecycler enableScopeRecycling(MortarScope rootScope, int maxSize) {
+    RealScope realScope = requireRoot(rootScope);
+    realScope.treeLock.lock();
+    try {
+      if (realScope.recycler == null) {
+        realScope.recycler = new ScopeRecycler(maxSize, realScope.treeLock);
+      }
+      return realScope.recycler;
+    } finally {
+      realScope.treeLock.unlock();
+    }
+  }
+
+  /**
+   * Starts watching the given root's tree for leaks: scopes and their contexts that outlive
+   * their destruction, and views that outlive being {@link Presenter#dropView dropped}, by
+   * {@code gcsBeforeReport} garbage collections. Suspects are reported to the listener from
+   * {@link LeakWatchdog#check}. Redundant calls return the original watchdog.
+   */
+  public static LeakWatchdog enableLeakWatchdog(MortarScope rootScope, int gcsBeforeReport,
+      LeakWatchdog.Listener listener) {
+    RealScope realScope = requireRoot(rootScope);
+    realScope.treeLock.lock();
+    try {
+      if (realScope.leakWatchdog == null) {
+        realScope.leakWatchdog = new LeakWatchdog(gcsBeforeReport, listener);
+      }
+      return realScope.leakWatchdog;
+    } finally {
+      realScope.treeLock.unlock();
+    }
+  }
+
+  /**
+   * Starts recording how long each bundler in the given root's tree takes to load and save,
+   * and returns the {@link BundlerTimings} to read the results from. If {@code measureSizes} is
+   * true, each bundle saved is also parcelled to measure it, which roughly doubles the cost of
+   * saving. Redundant calls return the original timings.
+   */
+  public static BundlerTimings enableBundlerTiming(MortarScope rootScope, boolean measureSizes) {
+    RealScope realScope = requireRoot(rootScope);
+    realScope.treeLock.lock();
+    try {
+      if (realScope.bundlerTimings == null) {
+        realScope.bundlerTimings = new BundlerTimings(measureSizes ? StateSpill.PARCEL : null);
+        realScope.addListener(realScope.bundlerTimings.listener);
+      }
+      return realScope.bundlerTimings;
+    } finally {
+      realScope.treeLock.unlock();
+    }
+  }
+
+  /**
+   * Has the given listener told of the lifecycle events of every scope in the given root's tree,
+   * from now on. Costs nothing while a tree has no listeners.
+   */
+  public static void addScopeListener(MortarScope rootScope, ScopeListener listener) {
+    if (listener == null) throw new NullPointerException("listener must not be null");
+    requireRoot(rootScope).addListener(listener);
+  }
+
+  /** Undoes {@link #addScopeListener}. Redundant calls are safe. */
+  public static void removeScopeListener(MortarScope rootScope, ScopeListener listener) {
+    requireRoot(rootScope).removeListener(listener);
+  }
+
+  private static RealScope requireRoot(MortarScope scope) {
+    RealScope realScope = (RealScope) scope;
+    if (!realScope.isRoot()) {
+      throw new IllegalArgumentException(String.format("%s is not a root", realScope.getName()));
+    }
+    return realScope;
+  }
+
   /**
    * Destroys a scope previously created by {@link Mortar#createRootScope(Object)}.
    */
@@ -69,11 +208,17 @@ public class Mortar {
   }
 
   /**
-   * Find the scope for the given {@link Context}.
+   * Find the scope for the given {@link Context}. Contexts made by {@link
+   * MortarScope#createContext} answer directly, without a service lookup, so views inflated from
+   * them find their scopes cheaply. Any other context is asked via {@link
+   * Context#getSystemService} each time, so it is never answered with a scope it has since
+   * replaced.
    *
    * @see MortarScope#createContext(android.content.Context)
    */
   public static MortarScope getScope(Context context) {
+    if (context instanceof MortarContextWrapper) return ((MortarContextWrapper) context).scope;
+
     //noinspection unchecked
     MortarScope scope = (MortarScope) context.getSystemService(MORTAR_SCOPE_SERVICE);
     if (scope == null) {
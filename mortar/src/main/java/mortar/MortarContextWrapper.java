@@ -20,7 +20,8 @@ import android.content.ContextWrapper;
 import android.view.LayoutInflater;
 
 class MortarContextWrapper extends ContextWrapper {
-  private final MortarScope scope;
+  /** Read directly by {@link Mortar#getScope} to skip the service lookup. */
+  final MortarScope scope;
 
   private LayoutInflater inflater;
 
@@ -29,6 +30,11 @@ class MortarContextWrapper extends ContextWrapper {
     this.scope = scope;
   }
 
+  /** Returns the inflater made by {@link #getSystemService}, or null if there isn't one yet. */
+  LayoutInflater peekInflater() {
+    return inflater;
+  }
+
   @Override public Object getSystemService(String name) {
     if (Mortar.isScopeSystemService(name)) {
       return scope;
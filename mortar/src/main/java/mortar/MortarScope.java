@@ -19,10 +19,17 @@ import android.content.Context;
 
 public interface MortarScope {
   String ROOT_NAME = "Root";
+  String PATH_SEPARATOR = "/";
 
   /** Returns the name of this scope. */
   String getName();
 
+  /**
+   * Returns the names of this scope and its ancestors, from the root down, joined by {@link
+   * #PATH_SEPARATOR}. e.g. {@code Root/MainActivity/ChatScreen}.
+   */
+  String getPath();
+
   /**
    * Returns the graph for this scope.
    *
@@ -46,6 +53,16 @@ public interface MortarScope {
    */
   MortarScope findChild(String name);
 
+  /**
+   * Returns the scope anywhere in this scope's tree whose {@link #getPath() path} is the given
+   * one, or null if there is none. The root remembers each path it resolves until the scope is
+   * destroyed, so repeated lookups cost a single hash lookup however deep the scope is. Scopes
+   * whose names contain {@link #PATH_SEPARATOR} cannot be found this way.
+   *
+   * @throws IllegalStateException if this scope has been destroyed
+   */
+  MortarScope findScope(String path);
+
   /**
    * Creates a new child scope based on the given name and subgraph.
    *
@@ -53,6 +70,16 @@ public interface MortarScope {
    */
   MortarScope createChild(String childName, Object childObjectGraph);
 
+  /**
+   * Like {@link #createChild}, but the child's graph is not built until the first call to its
+   * {@link #getObjectGraph()}, and never if the child is destroyed first. Useful for scopes
+   * that are often created and thrown away without anything injecting from them.
+   *
+   * @throws IllegalStateException if this scope has been destroyed
+   * @see Mortar#getLazyGraphStats
+   */
+  MortarScope createLazyChild(String childName, ObjectGraphFactory graphFactory);
+
   /**
    * Creates a new Context based on the given parent and this scope. e.g.:
    * <pre><code>
@@ -63,9 +90,11 @@ public interface MortarScope {
   Context createContext(Context parentContext);
 
   /**
-   * Sends {@link Scoped#onExitScope()} to all registrants and then clears the
-   * registration list. Recursively destroys all children. Parent scope drops its reference
-   * to this instance. Redundant calls to this method are safe.
+   * Destroys the given child and all of its descendants, which are all marked destroyed before
+   * any {@link Scoped#onExitScope()} is sent. Children then exit before their parents, siblings
+   * in the order they were created, and the registrants of each scope in the order they
+   * registered. Parent scope drops its reference to this instance. Redundant calls to this
+   * method are safe.
    */
   void destroyChild(MortarScope child);
 
@@ -1,6 +1,9 @@
 package mortar;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -14,11 +17,52 @@ public class MortarScopeDevHelper {
    * Dagger 1.1.0, please report any bug you may find.
    */
   public static String scopeHierarchyToString(MortarScope mortarScope) {
-    StringBuilder result = new StringBuilder("Mortar Hierarchy:\n");
     MortarScope rootScope = getRootScope(mortarScope);
-    Node rootNode = new MortarScopeNode(rootScope);
-    nodeHierarchyToString(result, 0, 0, rootNode);
-    return result.toString();
+    return nodeToString(new MortarScopeNode(rootScope));
+  }
+
+  /**
+   * Like {@link #scopeHierarchyToString}, but each scope is annotated with the heap it pins by
+   * itself and with its descendants, as estimated by {@link Mortar#measureFootprint}. Slow, see
+   * there.
+   */
+  public static String scopeFootprintToString(MortarScope mortarScope) {
+    MortarScope rootScope = getRootScope(mortarScope);
+    return nodeToString(new FootprintNode(Mortar.measureFootprint(rootScope)));
+  }
+
+  /**
+   * Captures the shape of the given scope and its descendants, to compare with another capture
+   * by {@link ScopeTreeSnapshot#diff}. Cheap: reads no more than the names, types and bundler
+   * keys of the scopes, and the entry counts of their saved bundles.
+   *
+   * @throws IllegalStateException if the scope has been destroyed
+   */
+  public static ScopeTreeSnapshot snapshotTree(MortarScope mortarScope) {
+    RealScope realScope = (RealScope) mortarScope;
+    realScope.assertNotDead();
+    return ScopeTreeSnapshot.of(realScope);
+  }
+
+  /**
+   * Writes the whole hierarchy of the given scope's tree as text in the format of {@link
+   * #scopeHierarchyToString}, a line at a time. Each scope is followed by its type, the number
+   * of {@link Scoped}s registered with it and, for activity scopes, the keys of its bundlers.
+   * Children are written in the order they were created rather than sorted, so that trees of
+   * any size or depth can be written without holding more than the path to the current scope.
+   * The writer is neither flushed nor closed.
+   */
+  public static void writeHierarchy(MortarScope mortarScope, Writer out) throws IOException {
+    ScopeHierarchyWriter.write((RealScope) getRootScope(mortarScope), out, false);
+  }
+
+  /**
+   * Like {@link #writeHierarchy}, but writes a single JSON object with the fields {@code name},
+   * {@code type}, {@code destroyed}, {@code scopedCount}, {@code bundlerKeys} and {@code
+   * children}, the last an array of objects of the same shape.
+   */
+  public static void writeHierarchyJson(MortarScope mortarScope, Writer out) throws IOException {
+    ScopeHierarchyWriter.write((RealScope) getRootScope(mortarScope), out, true);
   }
 
   interface Node {
@@ -57,6 +101,31 @@ public class MortarScopeDevHelper {
   }
 
 
+  static class FootprintNode implements Node {
+    private final ScopeFootprint footprint;
+
+    FootprintNode(ScopeFootprint footprint) {
+      this.footprint = footprint;
+    }
+
+    @Override public String getName() {
+      return "SCOPE " + footprint.getName()
+          + " (subtree " + footprint.getSubtreeBytes() + " B"
+          + ", own " + footprint.getOwnBytes() + " B"
+          + ": graph " + footprint.getGraphBytes() + " B"
+          + ", registrants " + footprint.getRegistrantBytes() + " B"
+          + ", inflaters " + footprint.getInflaterBytes() + " B)";
+    }
+
+    @Override public List<Node> getChildNodes() {
+      List<Node> childNodes = new ArrayList<Node>();
+      for (ScopeFootprint child : footprint.getChildren()) {
+        childNodes.add(new FootprintNode(child));
+      }
+      return childNodes;
+    }
+  }
+
   private static MortarScope getRootScope(MortarScope mortarScope) {
     if (!(mortarScope instanceof RealScope)) {
       return mortarScope;
@@ -68,9 +137,15 @@ public class MortarScopeDevHelper {
     return scope;
   }
 
-  private static void nodeHierarchyToString(StringBuilder result, int depth, long lastChildMask,
-      Node node) {
-    appendLinePrefix(result, depth, lastChildMask);
+  static String nodeToString(Node rootNode) {
+    StringBuilder result = new StringBuilder("Mortar Hierarchy:\n");
+    nodeHierarchyToString(result, 0, new BitSet(), rootNode);
+    return result.toString();
+  }
+
+  private static void nodeHierarchyToString(StringBuilder result, int depth,
+      BitSet lastChildren, Node node) {
+    appendLinePrefix(result, depth, lastChildren);
     result.append(node.getName()).append('\n');
 
     List<Node> childNodes = node.getChildNodes();
@@ -80,14 +155,20 @@ public class MortarScopeDevHelper {
     int index = 0;
     for (Node childNode : childNodes) {
       if (index == lastIndex) {
-        lastChildMask = lastChildMask | (1 << depth);
+        lastChildren.set(depth);
       }
-      nodeHierarchyToString(result, depth + 1, lastChildMask, childNode);
+      nodeHierarchyToString(result, depth + 1, lastChildren, childNode);
       index++;
     }
+    lastChildren.clear(depth);
   }
 
-  private static void appendLinePrefix(StringBuilder result, int depth, long lastChildMask) {
+  /**
+   * Appends the tree lines leading to a node at the given depth. Bit {@code d} of {@code
+   * lastChildren} is set if the node's ancestor at depth {@code d + 1}, or the node itself, is
+   * the last child of its parent.
+   */
+  static void appendLinePrefix(StringBuilder result, int depth, BitSet lastChildren) {
     int lastDepth = depth - 1;
     // Add a non-breaking space at the beginning of the line because Logcat eats normal spaces.
     result.append('\u00a0');
@@ -95,7 +176,7 @@ public class MortarScopeDevHelper {
       if (parentDepth > 0) {
         result.append(' ');
       }
-      boolean lastChild = (lastChildMask & (1 << parentDepth)) != 0;
+      boolean lastChild = lastChildren.get(parentDepth);
       if (lastChild) {
         if (parentDepth == lastDepth) {
           result.append('`');
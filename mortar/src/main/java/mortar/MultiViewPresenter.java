@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Like {@link Presenter}, but serves any number of views at once, e.g. the panes of a tablet
+ * layout that show the same data. It registers once with the views' scope and does its shared
+ * work, in {@link #onLoad}, once for all of them, rather than once per view as a presenter each
+ * would. Each view is brought up to date by {@link #onTakeView}, and later changes are fanned out
+ * to all of them by {@link #updateViews}, which applies each change right away: there is none of
+ * the per-frame batching of {@link Presenter#updateView}, nor a {@link Presenter#submit}. All
+ * views taken at once must share a scope. Must be used on the main thread.
+ */
+public abstract class MultiViewPresenter<V> extends BasePresenter<V> {
+  /** The current views, in the order they were taken. */
+  private final List<V> views = new ArrayList<>();
+  /** Those of {@link #views} that {@link #onTakeView} has yet to be called for. */
+  private final List<V> unboundViews = new ArrayList<>();
+  private final List<V> unmodifiableViews = Collections.unmodifiableList(views);
+  /** The scope of the current {@link #views}, or null if there are none. */
+  private MortarScope viewScope;
+
+  /** Load has been called since the first of the current {@link #views} was taken. */
+  private boolean loaded;
+
+  @Override final void load(Bundle savedInstanceState) {
+    if (views.isEmpty()) return;
+    if (!loaded) {
+      loaded = true;
+      onLoad(savedInstanceState);
+    }
+    // Views taken or dropped by onTakeView are handled in the same pass.
+    while (loaded && !unboundViews.isEmpty()) {
+      onTakeView(unboundViews.remove(0));
+    }
+  }
+
+  /**
+   * Adds the given view to those served by this presenter, ideally from {@link
+   * android.view.View#onAttachedToWindow()}. Redundant calls are safe. The presenter is
+   * (re-)registered with the view's scope, leading to a call to {@link #onLoad} if this is the
+   * only view, and then to {@link #onTakeView} for it.
+   *
+   * @throws IllegalArgumentException if the view's scope is not that of the views already taken
+   */
+  public final void takeView(V view) {
+    if (view == null) throw new NullPointerException("new view must not be null");
+    if (indexOf(views, view) >= 0) return;
+
+    MortarScope scope = extractScope(view);
+    if (viewScope != null && scope != viewScope) {
+      throw new IllegalArgumentException(
+          String.format("%s is in scope %s, but this presenter's other views are in %s", view,
+              scope.getPath(), viewScope.getPath()));
+    }
+    viewScope = scope;
+    views.add(view);
+    unboundViews.add(view);
+    forgetView(scope, view);
+    scope.register(registration);
+  }
+
+  /**
+   * Removes the given view from those served by this presenter, e.g. from {@link
+   * android.view.View#onDetachedFromWindow()}. Views that were never taken, or already dropped,
+   * are a no-op. Once the last view is dropped, {@link #onLoad} will be called again for the next.
+   */
+  public final void dropView(V view) {
+    if (view == null) throw new NullPointerException("dropped view must not be null");
+    int index = indexOf(views, view);
+    if (index < 0) return;
+
+    views.remove(index);
+    int unbound = indexOf(unboundViews, view);
+    if (unbound >= 0) {
+      unboundViews.remove(unbound);
+    } else {
+      onDropView(view);
+    }
+
+    MortarScope scope = viewScope;
+    if (views.isEmpty()) {
+      loaded = false;
+      viewScope = null;
+    }
+    watchDroppedView(scope, view, this);
+  }
+
+  /**
+   * Applies the given update to each view that has been {@link #onTakeView brought up to date},
+   * in the order they were taken. A view taken by the update is not updated, a view dropped by
+   * it is skipped.
+   */
+  protected final void updateViews(ViewUpdate<? super V> update) {
+    if (update == null) throw new NullPointerException("update must not be null");
+    if (views.isEmpty()) return;
+    List<V> updating = new ArrayList<>(views);
+    for (V view : updating) {
+      if (indexOf(views, view) >= 0 && indexOf(unboundViews, view) < 0) update.apply(view);
+    }
+  }
+
+  /** Returns the views served by this presenter, in the order they were taken. */
+  protected final List<V> getViews() {
+    return unmodifiableViews;
+  }
+
+  /** Returns true if this presenter is serving at least one view. */
+  protected final boolean hasViews() {
+    return !views.isEmpty();
+  }
+
+  private static int indexOf(List<?> list, Object view) {
+    for (int i = 0, size = list.size(); i < size; i++) {
+      if (list.get(i) == view) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Like {@link Bundler#onLoad}, but called only when there is a view, and only once until all
+   * views are dropped. This is the place for work shared by all views, which {@link #onTakeView}
+   * then shows on each of them.
+   */
+  protected void onLoad(Bundle savedInstanceState) {
+  }
+
+  /** Called after {@link #onLoad} for each view taken, to bring it up to date. */
+  protected void onTakeView(V view) {
+  }
+
+  /** Called when a view that {@link #onTakeView} was called for is dropped. */
+  protected void onDropView(V view) {
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+/**
+ * Builds the object graph of a scope created by {@link MortarScope#createLazyChild}, the first
+ * time someone asks for it.
+ */
+public interface ObjectGraphFactory {
+  /**
+   * Called at most once, from the first call to the new scope's {@link
+   * MortarScope#getObjectGraph()}. Other threads that ask for the graph meanwhile wait for it.
+   * Never called if the scope is destroyed first. If it is destroyed while this runs, the graph
+   * is dropped, and getObjectGraph throws as it would for any destroyed scope.
+   */
+  Object createObjectGraph();
+}
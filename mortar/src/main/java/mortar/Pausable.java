@@ -0,0 +1,28 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+/**
+ * Work that feeds a presenter's view and can stop and start again without being rebuilt, e.g. a
+ * polling loop or a subscription to a hot source. See {@link Presenter#bindToView}.
+ */
+public interface Pausable {
+  /** Called once the presenter has a view with its state loaded. */
+  void resume();
+
+  /** Called when the view is dropped, or the presenter exits its scope. */
+  void pause();
+}
@@ -16,37 +16,65 @@
 package mortar;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public abstract class Presenter<V> extends BasePresenter<V> {
+  private static final PresenterEventListener[] NO_EVENT_LISTENERS =
+      new PresenterEventListener[0];
 
-public abstract class Presenter<V> {
   private V view = null;
+  /** The scope of the current {@link #view}, to find its {@link LeakWatchdog} once dropped. */
+  private MortarScope viewScope;
 
   /** Load has been called for the current {@link #view}. */
   private boolean loaded;
 
-  private Bundler registration = new Bundler() {
-    @Override public String getMortarBundleKey() {
-      return Presenter.this.getMortarBundleKey();
-    }
+  private FrameClock frameClock = FrameClock.CHOREOGRAPHER;
+  /** Updates queued by {@link #updateView}, in order. Created on first use, as are the next two. */
+  private Set<ViewUpdate<? super V>> pendingUpdates;
+  /** Swapped with {@link #pendingUpdates} while they are applied. */
+  private Set<ViewUpdate<? super V>> spareUpdates;
+  private Choreographer.FrameCallback frameCallback;
+  private boolean framePosted;
 
-    @Override public void onLoad(Bundle savedInstanceState) {
-      if (hasView() && !loaded) {
-        loaded = true;
-        Presenter.this.onLoad(savedInstanceState);
-      }
-    }
+  /** Set by {@link #setTaskExecutors}, otherwise the {@link DefaultExecutors} are used. */
+  private Executor backgroundExecutor;
+  private Executor mainExecutor;
+  /** Work submitted for the current view that has yet to be delivered. Created on first use. */
+  private Set<BoundTask<?>> tasks;
 
-    @Override public void onSave(Bundle outState) {
-      Presenter.this.onSave(outState);
-    }
+  /** Replaced, never modified, so that listeners can come and go while events are sent. */
+  private PresenterEventListener[] eventListeners = NO_EVENT_LISTENERS;
 
-    @Override public void onEnterScope(MortarScope scope) {
-      Presenter.this.onEnterScope(scope);
+  @Override final void load(Bundle savedInstanceState) {
+    if (hasView() && !loaded) {
+      loaded = true;
+      onLoad(savedInstanceState);
+      sendEvent(PresenterEvent.LOAD);
     }
+  }
 
-    @Override public void onExitScope() {
-      Presenter.this.onExitScope();
-    }
-  };
+  @Override final void exitScope() {
+    cancelTasks();
+    cancelUpdates();
+    onExitScope();
+    sendEvent(PresenterEvent.EXIT_SCOPE);
+  }
 
   /**
    * Called to give this presenter control of a view, ideally from {@link
@@ -70,7 +98,11 @@ public abstract class Presenter<V> {
       if (this.view != null) dropView(this.view);
 
       this.view = view;
-      extractScope(view).register(registration);
+      viewScope = extractScope(view);
+      forgetView(viewScope, view);
+      sendEvent(PresenterEvent.TAKE_VIEW);
+      viewScope.register(registration);
+      postFrame();
     }
   }
 
@@ -92,15 +124,286 @@ public abstract class Presenter<V> {
     if (view == this.view) {
       loaded = false;
       this.view = null;
+      cancelFrame();
+      cancelTasks();
+      sendEvent(PresenterEvent.DROP_VIEW);
+      MortarScope scope = viewScope;
+      viewScope = null;
+      watchDroppedView(scope, view, this);
+    }
+  }
+
+  /**
+   * Queues the given update to be applied to the view at the start of the next frame, along with
+   * every other update queued by then, in the order they were first queued. Queueing an update
+   * that is already waiting does nothing, so a bursty producer can collect its changes in a
+   * field and queue the same update to apply all of them in one go, e.g. with a single {@code
+   * addAll} to an adapter, costing one layout per frame however many changes arrive. Updates wait
+   * while there is no view, and are applied in the first frame after the next {@link #takeView}.
+   * Must be called on the main thread.
+   */
+  protected final void updateView(ViewUpdate<? super V> update) {
+    if (update == null) throw new NullPointerException("update must not be null");
+    if (pendingUpdates == null) {
+      pendingUpdates = new LinkedHashSet<>();
+      spareUpdates = new LinkedHashSet<>();
+      frameCallback = new Choreographer.FrameCallback() {
+        @Override public void doFrame(long frameTimeNanos) {
+          framePosted = false;
+          applyUpdates();
+        }
+      };
     }
+    pendingUpdates.add(update);
+    postFrame();
   }
 
-  protected String getMortarBundleKey() {
-    return getClass().getName();
+  /**
+   * Sets the clock that tells this presenter when to apply the updates queued by {@link
+   * #updateView}. Defaults to {@link FrameClock#CHOREOGRAPHER}; tests can use a {@link
+   * ManualFrameClock}.
+   */
+  public final void setFrameClock(FrameClock frameClock) {
+    if (frameClock == null) throw new NullPointerException("frameClock must not be null");
+    if (framePosted) this.frameClock.removeFrameCallback(frameCallback);
+    this.frameClock = frameClock;
+    if (framePosted) frameClock.postFrameCallback(frameCallback);
   }
 
-  /** Called by {@link #takeView}. Given a view instance, return its {@link MortarScope}. */
-  protected abstract MortarScope extractScope(V view);
+  private void postFrame() {
+    if (framePosted || view == null || pendingUpdates == null || pendingUpdates.isEmpty()) return;
+    framePosted = true;
+    frameClock.postFrameCallback(frameCallback);
+  }
+
+  private void cancelFrame() {
+    if (!framePosted) return;
+    framePosted = false;
+    frameClock.removeFrameCallback(frameCallback);
+  }
+
+  /** Drops the posted frame and everything queued for it, so that none of it outlives our scope. */
+  private void cancelUpdates() {
+    cancelFrame();
+    if (pendingUpdates != null) pendingUpdates.clear();
+  }
+
+  private void applyUpdates() {
+    Set<ViewUpdate<? super V>> applying = pendingUpdates;
+    pendingUpdates = spareUpdates;
+
+    Iterator<ViewUpdate<? super V>> i = applying.iterator();
+    while (view != null && i.hasNext()) {
+      ViewUpdate<? super V> update = i.next();
+      i.remove();
+      update.apply(view);
+    }
+
+    if (applying.isEmpty()) {
+      spareUpdates = applying;
+    } else {
+      // An update dropped the view. The rest wait for the next one, ahead of any queued since.
+      applying.addAll(pendingUpdates);
+      pendingUpdates.clear();
+      spareUpdates = pendingUpdates;
+      pendingUpdates = applying;
+    }
+    postFrame();
+  }
+
+  /**
+   * Runs the given work on a background thread, and hands its result or failure to the callback
+   * on the main thread, if and only if this presenter still has the view it has now. Work is
+   * cancelled, and its thread interrupted, when the view is dropped or the presenter exits its
+   * scope, so that nothing keeps running for a screen that is gone. Must be called on the main
+   * thread, while there is a view.
+   *
+   * @return the work, to cancel it sooner or to wait for it in tests
+   */
+  protected final <T> Future<T> submit(Callable<T> work,
+      TaskCallback<? super V, ? super T> callback) {
+    if (work == null) throw new NullPointerException("work must not be null");
+    if (callback == null) throw new NullPointerException("callback must not be null");
+    if (view == null) throw new IllegalStateException("Cannot submit work without a view");
+
+    if (tasks == null) tasks = new LinkedHashSet<>();
+    Executor main = mainExecutor != null ? mainExecutor : DefaultExecutors.MAIN;
+    Executor background = backgroundExecutor != null ? backgroundExecutor
+        : DefaultExecutors.BACKGROUND;
+    BoundTask<T> task = new BoundTask<>(work, callback, main);
+    tasks.add(task);
+    try {
+      background.execute(task);
+    } catch (RuntimeException e) {
+      tasks.remove(task);
+      throw e;
+    }
+    return task;
+  }
+
+  /**
+   * Sets the executors that {@link #submit} runs work on and delivers results with, e.g. to
+   * run both inline in tests. By default work runs on a small shared pool of daemon threads, and
+   * results are posted to the main looper.
+   */
+  public final void setTaskExecutors(Executor background, Executor main) {
+    if (background == null) throw new NullPointerException("background must not be null");
+    if (main == null) throw new NullPointerException("main must not be null");
+    this.backgroundExecutor = background;
+    this.mainExecutor = main;
+  }
+
+  private void cancelTasks() {
+    if (tasks == null || tasks.isEmpty()) return;
+    for (BoundTask<?> task : tasks) {
+      task.cancel(true);
+    }
+    tasks.clear();
+  }
+
+  /** Work given to {@link #submit}, which hands its outcome to the main thread when done. */
+  private final class BoundTask<T> extends FutureTask<T> {
+    private final TaskCallback<? super V, ? super T> callback;
+    private final Executor main;
+
+    BoundTask(Callable<T> work, TaskCallback<? super V, ? super T> callback, Executor main) {
+      super(work);
+      this.callback = callback;
+      this.main = main;
+    }
+
+    @Override protected void done() {
+      if (isCancelled()) return;
+      main.execute(new Runnable() {
+        @Override public void run() {
+          deliver();
+        }
+      });
+    }
+
+    /** Runs on the main thread. Our view is still current if we're still in {@link #tasks}. */
+    private void deliver() {
+      if (tasks == null || !tasks.remove(this) || view == null) return;
+
+      T result;
+      try {
+        result = get();
+      } catch (ExecutionException e) {
+        callback.onFailure(view, e.getCause());
+        return;
+      } catch (InterruptedException e) {
+        // Can't happen, we're done.
+        throw new AssertionError(e);
+      }
+      callback.onSuccess(view, result);
+    }
+  }
+
+  /** Created on first use, so that presenters that never submit work don't start threads. */
+  private static final class DefaultExecutors {
+    static final Executor BACKGROUND;
+    static final Executor MAIN = new Executor() {
+      private final Handler handler = new Handler(Looper.getMainLooper());
+
+      @Override public void execute(Runnable command) {
+        handler.post(command);
+      }
+    };
+
+    static {
+      int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+      final AtomicInteger count = new AtomicInteger();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "mortar-presenter-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      pool.allowCoreThreadTimeOut(true);
+      BACKGROUND = pool;
+    }
+
+    private DefaultExecutors() {
+    }
+  }
+
+  /**
+   * Tells the given listener of each {@link PresenterEvent} from now on. If there is a view, the
+   * listener is first told of the {@link PresenterEvent#TAKE_VIEW} and, if its state has been
+   * loaded, the {@link PresenterEvent#LOAD} that it missed, so that it can't tell whether it was
+   * added before or after them. Redundant calls add the listener again.
+   */
+  public final void addEventListener(PresenterEventListener listener) {
+    if (listener == null) throw new NullPointerException("listener must not be null");
+    PresenterEventListener[] copy = new PresenterEventListener[eventListeners.length + 1];
+    System.arraycopy(eventListeners, 0, copy, 0, eventListeners.length);
+    copy[eventListeners.length] = listener;
+    eventListeners = copy;
+
+    if (view != null) listener.onPresenterEvent(PresenterEvent.TAKE_VIEW);
+    if (view != null && loaded) listener.onPresenterEvent(PresenterEvent.LOAD);
+  }
+
+  /** Undoes one {@link #addEventListener} call. Redundant calls are safe. */
+  public final void removeEventListener(PresenterEventListener listener) {
+    for (int i = 0; i < eventListeners.length; i++) {
+      if (!eventListeners[i].equals(listener)) continue;
+      if (eventListeners.length == 1) {
+        eventListeners = NO_EVENT_LISTENERS;
+      } else {
+        PresenterEventListener[] copy = new PresenterEventListener[eventListeners.length - 1];
+        System.arraycopy(eventListeners, 0, copy, 0, i);
+        System.arraycopy(eventListeners, i + 1, copy, i, copy.length - i);
+        eventListeners = copy;
+      }
+      return;
+    }
+  }
+
+  /**
+   * Resumes the given work whenever this presenter has a view whose state is loaded, and pauses
+   * it whenever the view is dropped or the presenter exits its scope, so that it only runs while
+   * it has somewhere to deliver to, and is never rebuilt. Resumes it right away if the view is
+   * already loaded.
+   *
+   * @return the listener that does this, to {@link #removeEventListener remove} to unbind
+   */
+  public final PresenterEventListener bindToView(final Pausable work) {
+    if (work == null) throw new NullPointerException("work must not be null");
+    PresenterEventListener binding = new PresenterEventListener() {
+      private boolean running;
+
+      @Override public void onPresenterEvent(PresenterEvent event) {
+        switch (event) {
+          case LOAD:
+            if (!running) {
+              running = true;
+              work.resume();
+            }
+            break;
+          case DROP_VIEW:
+          case EXIT_SCOPE:
+            if (running) {
+              running = false;
+              work.pause();
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    };
+    addEventListener(binding);
+    return binding;
+  }
+
+  private void sendEvent(PresenterEvent event) {
+    for (PresenterEventListener listener : eventListeners) {
+      listener.onPresenterEvent(event);
+    }
+  }
 
   /**
    * Returns the view managed by this presenter, or null if {@link #takeView} has never been
@@ -118,10 +421,6 @@ public abstract class Presenter<V> {
     return view != null;
   }
 
-  /** Like {@link Bundler#onEnterScope}. */
-  protected void onEnterScope(MortarScope scope) {
-  }
-
   /**
    * Like {@link Bundler#onLoad}, but called only when {@link #getView()} is not
    * null, and debounced. That is, this method will be called exactly once for a given view
@@ -131,16 +430,4 @@ public abstract class Presenter<V> {
    */
   protected void onLoad(Bundle savedInstanceState) {
   }
-
-  /** Like {@link Bundler#onSave}. */
-  protected void onSave(Bundle outState) {
-  }
-
-  /**
-   * Like {@link Bundler#onExitScope}. One subtlety to note is that a presenter may be created
-   * by a higher level scope than the one it is registered with, in which case it may receive
-   * multiple calls to this method.
-   */
-  protected void onExitScope() {
-  }
 }
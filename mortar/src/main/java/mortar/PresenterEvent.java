@@ -0,0 +1,28 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+/** The lifecycle of a {@link Presenter}, as told to its {@link PresenterEventListener}s. */
+public enum PresenterEvent {
+  /** {@link Presenter#takeView} was given a new view. Its state may not be loaded yet. */
+  TAKE_VIEW,
+  /** {@link Presenter#onLoad} was called for the current view. */
+  LOAD,
+  /** The current view was {@link Presenter#dropView dropped}. */
+  DROP_VIEW,
+  /** {@link Presenter#onExitScope} was called. Can happen more than once, see there. */
+  EXIT_SCOPE
+}
@@ -16,14 +16,54 @@
 package mortar;
 
 import android.os.Bundle;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import static java.lang.String.format;
 
 class RealActivityScope extends RealScope implements MortarActivityScope {
+  /** Visitors for the walks that follow a scope's own work down its subtree. Main thread only. */
+  private static final ScopeVisitor<RealActivityScope> CREATE =
+      new ScopeVisitor<RealActivityScope>(RealActivityScope.class) {
+        @Override Result preVisit(RealActivityScope scope) {
+          RealActivityScope parent = (RealActivityScope) scope.getParent();
+          scope.createHere(parent.getNestedBundle(scope, parent.latestSavedInstanceState, false));
+          return Result.CONTINUE;
+        }
+      };
+
+  private static final ScopeVisitor<RealActivityScope> SAVE =
+      new ScopeVisitor<RealActivityScope>(RealActivityScope.class) {
+        @Override Result preVisit(RealActivityScope scope) {
+          RealActivityScope parent = (RealActivityScope) scope.getParent();
+          boolean saved =
+              scope.saveHere(parent.getNestedBundle(scope, parent.latestSavedInstanceState, true));
+          return saved ? Result.CONTINUE : Result.SKIP_CHILDREN;
+        }
+
+        @Override void postVisit(RealActivityScope scope) {
+          scope.myLoadingState = LoadingState.IDLE;
+        }
+      };
+
+  private static final ScopeVisitor<RealActivityScope> LOAD =
+      new ScopeVisitor<RealActivityScope>(RealActivityScope.class) {
+        @Override Result preVisit(RealActivityScope scope) {
+          return scope.loadHere() ? Result.CONTINUE : Result.SKIP_CHILDREN;
+        }
+      };
+
   private Bundle latestSavedInstanceState;
 
   private enum LoadingState {
@@ -32,11 +72,44 @@ class RealActivityScope extends RealScope implements MortarActivityScope {
 
   private LoadingState myLoadingState = LoadingState.IDLE;
 
-  private List<Bundler> toloadThisTime = new ArrayList<>();
-  private Set<Bundler> bundlers = new HashSet<>();
+  /** Nesting depth of {@link ScopeBatch}es running on this scope. */
+  private int batchDepth;
+  /** True if the outermost batch put this scope into {@link LoadingState#LOADING}. */
+  private boolean batchLoading;
+
+  /**
+   * Registrations due to load, in the order they became due. Never holds one twice, which is
+   * mostly known without searching it: see {@link #enqueueNewLoad}.
+   */
+  private final Deque<Registration> toloadThisTime = new ArrayDeque<>();
+  private Set<Registration> bundlers = new LinkedHashSet<>();
+  /** The bundles last saved by our {@link IncrementalBundler}s, to hand on while they're clean. */
+  private Map<Bundler, Bundle> lastSavedBundles = new HashMap<>();
+
+  /** The {@link CompactState} blob this scope was created with or last saved, if any. */
+  private byte[] compactStateBlob;
+  /** The records of {@link #compactStateBlob}, decoded on first use. */
+  private Map<String, StateReader> compactState;
+  /** True while {@link #onSaveInstanceState} is saving this scope and those below it. */
+  private boolean savingCompactState;
+  /**
+   * Collects the records of our compact bundlers and those below while we're saving. Created by
+   * the first one to write, so that trees without any don't pay for it.
+   */
+  private CompactState.Encoder compactStateOut;
+
+  /** Set by {@link Mortar#enableStateSpill}, and applies to the scopes below too. */
+  StateSpill stateSpill;
+
+  /** Set by {@link Mortar#setLoadExecutor}, and applies to the scopes below too. */
+  Executor loadExecutor;
+  /** The loads our {@link AsyncBundler}s are preparing, by bundler. */
+  private final Map<Bundler, PreparedLoad> preparedLoads = new HashMap<>();
+  /** {@link AsyncBundler}s queued to load since we last looked for loads to prepare. */
+  private final Deque<BundlerRegistration> toPrepare = new ArrayDeque<>();
 
   RealActivityScope(RealScope original) {
-    super(original.getName(), original.getParent(), original.getObjectGraph());
+    super(original);
   }
 
   @Override public void register(Scoped scoped) {
@@ -46,13 +119,19 @@ class RealActivityScope extends RealScope implements MortarActivityScope {
       throw new IllegalStateException("Cannot register during onSave");
     }
 
-    doRegister(scoped);
-    if (!(scoped instanceof Bundler)) return;
+    boolean added = doRegister(scoped);
+    Registration b;
+    if (scoped instanceof Bundler) {
+      b = new BundlerRegistration((Bundler) scoped);
+    } else if (scoped instanceof CompactBundler) {
+      b = new CompactRegistration((CompactBundler) scoped);
+    } else {
+      return;
+    }
 
-    Bundler b = (Bundler) scoped;
     String mortarBundleKey = b.getMortarBundleKey();
     if (mortarBundleKey == null || mortarBundleKey.trim().equals("")) {
-      throw new IllegalArgumentException(format("%s has null or empty bundle key", b));
+      throw new IllegalArgumentException(format("%s has null or empty bundle key", scoped));
     }
 
     LoadingState ancestorLoadingState;
@@ -62,13 +141,17 @@ class RealActivityScope extends RealScope implements MortarActivityScope {
       ancestorLoadingState = LoadingState.IDLE;
     }
 
+    // Only a scoped that was registered here before can be queued already.
+    if (added) {
+      enqueueNewLoad(b);
+    } else {
+      enqueueLoad(b);
+    }
     switch (ancestorLoadingState) {
       case IDLE:
-        toloadThisTime.add(b);
         doLoading();
         break;
       case LOADING:
-        if (!toloadThisTime.contains(b)) toloadThisTime.add(b);
         break;
 
       default:
@@ -78,21 +161,47 @@ class RealActivityScope extends RealScope implements MortarActivityScope {
 
   @Override public void onCreate(Bundle savedInstanceState) {
     assertNotDead();
+    createHere(savedInstanceState);
+    CREATE.visitDescendants(this);
+  }
 
+  private void createHere(Bundle savedInstanceState) {
     // Make note of the bundle to send it to bundlers when register is called.
     latestSavedInstanceState = savedInstanceState;
-
-    toloadThisTime.addAll(bundlers);
-    if (unionLoadingState(this) == LoadingState.IDLE) doLoading();
-
-    for (RealScope child : children.values()) {
-      if (!(child instanceof RealActivityScope)) continue;
-      ((RealActivityScope) child).onCreate(getNestedBundle(child, savedInstanceState, false));
+    compactStateBlob = savedInstanceState == null ? null
+        : savedInstanceState.getByteArray(CompactState.BUNDLE_KEY);
+    compactState = null;
+
+    // Spares a search of the queue per bundler when some of them are queued already.
+    Set<Registration> queued = toloadThisTime.isEmpty() ? null : new HashSet<>(toloadThisTime);
+    for (Registration bundler : bundlers) {
+      if (queued == null || !queued.contains(bundler)) enqueueNewLoad(bundler);
     }
+    if (unionLoadingState(this) == LoadingState.IDLE) doLoading();
   }
 
   @Override public void onSaveInstanceState(Bundle outState) {
     assertNotDead();
+    savingCompactState = true;
+    try {
+      if (!saveHere(outState)) return;
+      SAVE.visitDescendants(this);
+
+      compactState = null;
+      compactStateBlob = compactStateOut == null || compactStateOut.isEmpty() ? null
+          : compactStateOut.encode();
+      if (compactStateBlob != null) {
+        outState.putByteArray(CompactState.BUNDLE_KEY, compactStateBlob);
+      }
+    } finally {
+      savingCompactState = false;
+      compactStateOut = null;
+    }
+    myLoadingState = LoadingState.IDLE;
+  }
+
+  /** Saves this scope's own bundlers. Returns false if one of them destroyed the scope. */
+  private boolean saveHere(Bundle outState) {
     if (myLoadingState != LoadingState.IDLE) {
       throw new IllegalStateException("Cannot handle onSaveInstanceState while " + myLoadingState);
     }
@@ -100,40 +209,204 @@ class RealActivityScope extends RealScope implements MortarActivityScope {
     latestSavedInstanceState = outState;
 
     myLoadingState = LoadingState.SAVING;
-    List<Bundler> copy = new ArrayList<>(bundlers);
-    for (Bundler b : copy) {
+    List<Registration> copy = new ArrayList<>(bundlers);
+    for (Registration b : copy) {
       // If anyone's onSave method destroyed us, short circuit.
-      if (isDead()) return;
+      if (isDead()) return false;
 
-      b.onSave(getNestedBundle(b, latestSavedInstanceState, true));
+      b.save(this);
     }
+    return true;
+  }
 
-    for (RealScope child : children.values()) {
-      if (!(child instanceof RealActivityScope)) return;
-      ((RealActivityScope) child).onSaveInstanceState(
-          getNestedBundle(child, latestSavedInstanceState, true));
+  private void save(Bundler bundler) {
+    if (!(bundler instanceof IncrementalBundler)) {
+      Bundle outState = getNestedBundle(bundler, latestSavedInstanceState, true);
+      callOnSave(bundler, outState);
+      spill(bundler, outState);
+      return;
     }
 
-    myLoadingState = LoadingState.IDLE;
+    Bundle lastSaved = lastSavedBundles.get(bundler);
+    if (lastSaved != null && !((IncrementalBundler) bundler).isDirty()) {
+      latestSavedInstanceState.putBundle(bundler.getMortarBundleKey(), lastSaved);
+      return;
+    }
+
+    Bundle outState = getNestedBundle(bundler, latestSavedInstanceState, true);
+    callOnSave(bundler, outState);
+    lastSavedBundles.put(bundler, spill(bundler, outState));
+  }
+
+  private void callOnSave(Bundler bundler, Bundle outState) {
+    ScopeListener[] listeners = getRoot().listeners;
+    if (listeners.length == 0) {
+      bundler.onSave(outState);
+      return;
+    }
+
+    long start = System.nanoTime();
+    bundler.onSave(outState);
+    long end = System.nanoTime();
+    for (ScopeListener listener : listeners) listener.onSaved(this, bundler, outState, start, end);
   }
 
-  @Override public MortarScope createChild(String childName, Object childObjectGraph) {
-    MortarScope unwrapped = super.createChild(childName, childObjectGraph);
-    RealActivityScope childScope = new RealActivityScope((RealScope) unwrapped);
+  /** Returns the bundle left in our saved state for the bundler: the given one, or a token. */
+  private Bundle spill(Bundler bundler, Bundle outState) {
+    StateSpill spill = findStateSpill();
+    if (spill == null) return outState;
+
+    String key = bundler.getMortarBundleKey();
+    Bundle saved = spill.spill(getPath() + PATH_SEPARATOR + key, outState);
+    if (saved != outState) latestSavedInstanceState.putBundle(key, saved);
+    return saved;
+  }
+
+  /** Returns the state saved for the given bundler, from disk if it was spilled there. */
+  private Bundle getSavedState(Bundler bundler) {
+    Bundle savedState = getNestedBundle(bundler, latestSavedInstanceState, false);
+    if (!StateSpill.isToken(savedState)) return savedState;
+
+    StateSpill spill = findStateSpill();
+    if (spill == null) return null;
+    return spill.restore(getPath() + PATH_SEPARATOR + bundler.getMortarBundleKey(), savedState);
+  }
+
+  private StateSpill findStateSpill() {
+    for (RealScope scope = this; scope instanceof RealActivityScope; scope = scope.getParent()) {
+      StateSpill spill = ((RealActivityScope) scope).stateSpill;
+      if (spill != null) return spill;
+    }
+    return null;
+  }
+
+  private void saveCompact(CompactBundler bundler) {
+    String path = bundler.getMortarBundleKey();
+    RealActivityScope holder = this;
+    while (!holder.savingCompactState) {
+      path = holder.getName() + PATH_SEPARATOR + path;
+      holder = (RealActivityScope) holder.getParent();
+    }
+    if (holder.compactStateOut == null) holder.compactStateOut = new CompactState.Encoder();
+    StateWriter writer = holder.compactStateOut.beginRecord(path);
+    ScopeListener[] listeners = getRoot().listeners;
+    if (listeners.length == 0) {
+      bundler.onSave(writer);
+    } else {
+      long start = System.nanoTime();
+      bundler.onSave(writer);
+      long end = System.nanoTime();
+      for (ScopeListener listener : listeners) listener.onSaved(this, bundler, null, start, end);
+    }
+    holder.compactStateOut.endRecord();
+  }
+
+  private void loadCompact(CompactBundler bundler) {
+    String path = bundler.getMortarBundleKey();
+    RealScope scope = this;
+    while (scope instanceof RealActivityScope) {
+      Map<String, StateReader> state = ((RealActivityScope) scope).getCompactState();
+      if (state != null) {
+        callOnLoad(bundler, state.get(path));
+        return;
+      }
+      path = scope.getName() + PATH_SEPARATOR + path;
+      scope = scope.getParent();
+    }
+    callOnLoad(bundler, null);
+  }
+
+  private void callOnLoad(CompactBundler bundler, StateReader reader) {
+    ScopeListener[] listeners = getRoot().listeners;
+    if (listeners.length == 0) {
+      bundler.onLoad(reader);
+      return;
+    }
+
+    long start = System.nanoTime();
+    bundler.onLoad(reader);
+    long end = System.nanoTime();
+    for (ScopeListener listener : listeners) listener.onLoaded(this, bundler, null, start, end);
+  }
+
+  private Map<String, StateReader> getCompactState() {
+    if (compactState == null && compactStateBlob != null) {
+      compactState = CompactState.decode(compactStateBlob);
+    }
+    return compactState;
+  }
+
+  @Override RealScope doCreateChild(String childName, Object childObjectGraph,
+      ObjectGraphFactory graphFactory) {
+    RealScope unwrapped = addChild(childName, childObjectGraph, graphFactory);
+    RealActivityScope childScope = new RealActivityScope(unwrapped);
     replaceChild(childName, childScope);
+    childScope.announceCreated();
     childScope.onCreate(getNestedBundle(childScope, latestSavedInstanceState, false));
     return childScope;
   }
 
+  /**
+   * Defers loading below this scope until the batch ends, just as registrations made while an
+   * ancestor is loading are deferred.
+   */
+  @Override void beginBatch() {
+    super.beginBatch();
+    if (batchDepth++ == 0 && myLoadingState == LoadingState.IDLE) {
+      batchLoading = true;
+      myLoadingState = LoadingState.LOADING;
+    }
+  }
+
+  @Override void endBatch() {
+    if (--batchDepth > 0 || !batchLoading) return;
+
+    batchLoading = false;
+    myLoadingState = LoadingState.IDLE;
+    if (!isDead() && unionLoadingState(this) == LoadingState.IDLE) doLoading();
+  }
+
   @Override void onChildDestroyed(RealScope child) {
     if (latestSavedInstanceState != null) {
       String name = child.getName();
       latestSavedInstanceState.putBundle(name, null);
     }
+    if (!isDead()) {
+      forgetCompactState(child.getName() + PATH_SEPARATOR);
+      StateSpill spill = findStateSpill();
+      if (spill != null) spill.forget(child.getPath());
+    }
     super.onChildDestroyed(child);
   }
 
+  @Override void exitScope() {
+    if (stateSpill != null) stateSpill.forget(getPath());
+    super.exitScope();
+  }
+
+  /** Drops the compact state saved for the child scope whose path starts with the given one. */
+  private void forgetCompactState(String prefix) {
+    RealScope scope = this;
+    while (scope instanceof RealActivityScope) {
+      Map<String, StateReader> state = ((RealActivityScope) scope).getCompactState();
+      if (state != null) {
+        Iterator<String> paths = state.keySet().iterator();
+        while (paths.hasNext()) {
+          if (paths.next().startsWith(prefix)) paths.remove();
+        }
+        return;
+      }
+      prefix = scope.getName() + PATH_SEPARATOR + prefix;
+      scope = scope.getParent();
+    }
+  }
+
   private void doLoading() {
+    if (loadHere()) LOAD.visitDescendants(this);
+  }
+
+  /** Loads this scope's pending bundlers. Returns false if one of them destroyed the scope. */
+  private boolean loadHere() {
     if (myLoadingState != LoadingState.IDLE && myLoadingState != LoadingState.LOADING) {
       throw new IllegalStateException("Cannot load while " + myLoadingState);
     }
@@ -143,18 +416,122 @@ class RealActivityScope extends RealScope implements MortarActivityScope {
 
     LoadingState initialState = myLoadingState;
     myLoadingState = LoadingState.LOADING;
-    while (!toloadThisTime.isEmpty()) {
-      if (isDead()) return;
-
-      Bundler next = toloadThisTime.remove(0);
-      bundlers.add(next);
-      next.onLoad(getNestedBundle(next, latestSavedInstanceState, false));
+    boolean drained = false;
+    try {
+      while (!toloadThisTime.isEmpty()) {
+        if (isDead()) return false;
+
+        prepareLoads();
+        Registration next = toloadThisTime.remove();
+        bundlers.add(next);
+        next.load(this);
+      }
+      drained = true;
+    } finally {
+      // Preparations left behind by a throwing onLoad, or by our destruction, would otherwise
+      // keep running and holding their bundles.
+      if (!drained) cancelPreparedLoads();
     }
     myLoadingState = initialState;
+    return true;
+  }
+
+  /** Queues the registration to load, unless it already is. Searches the queue to find out. */
+  private void enqueueLoad(Registration registration) {
+    if (!toloadThisTime.contains(registration)) enqueueNewLoad(registration);
+  }
+
+  /**
+   * Queues a registration known not to be queued yet, e.g. because its scoped was not yet
+   * registered here. Queueing many bundlers one search at a time would take quadratic time.
+   */
+  private void enqueueNewLoad(Registration registration) {
+    toloadThisTime.add(registration);
+    if (registration.isAsync()) toPrepare.add((BundlerRegistration) registration);
+  }
 
-    for (RealScope child : children.values()) {
-      if (child instanceof RealActivityScope) ((RealActivityScope) child).doLoading();
+  private void load(Bundler bundler) {
+    PreparedLoad prepared = preparedLoads.remove(bundler);
+    if (prepared != null) {
+      prepared.await();
+      callOnLoad(bundler, prepared.savedState);
+      return;
     }
+
+    Bundle savedState = getSavedState(bundler);
+    if (bundler instanceof AsyncBundler) ((AsyncBundler) bundler).prepareLoad(savedState);
+    callOnLoad(bundler, savedState);
+  }
+
+  private void callOnLoad(Bundler bundler, Bundle savedState) {
+    ScopeListener[] listeners = getRoot().listeners;
+    if (listeners.length == 0) {
+      bundler.onLoad(savedState);
+      return;
+    }
+
+    long start = System.nanoTime();
+    bundler.onLoad(savedState);
+    long end = System.nanoTime();
+    for (ScopeListener listener : listeners) {
+      listener.onLoaded(this, bundler, savedState, start, end);
+    }
+  }
+
+  /** Starts preparing the loads of the async bundlers due to load, if we have an executor. */
+  private void prepareLoads() {
+    if (toPrepare.isEmpty()) return;
+    Executor executor = findLoadExecutor();
+    if (executor == null) {
+      toPrepare.clear();
+      return;
+    }
+
+    BundlerRegistration registration;
+    while ((registration = toPrepare.poll()) != null) {
+      Bundler bundler = registration.bundler;
+      // Still queued: nothing leaves the queue without a call to us first.
+      if (preparedLoads.containsKey(bundler)) continue;
+
+      PreparedLoad prepared = new PreparedLoad((AsyncBundler) bundler, getSavedState(bundler));
+      preparedLoads.put(bundler, prepared);
+      executor.execute(prepared);
+    }
+  }
+
+  private void cancelPreparedLoads() {
+    for (PreparedLoad prepared : preparedLoads.values()) {
+      prepared.cancel(false);
+    }
+    preparedLoads.clear();
+    toPrepare.clear();
+  }
+
+  private Executor findLoadExecutor() {
+    for (RealScope scope = this; scope instanceof RealActivityScope; scope = scope.getParent()) {
+      Executor executor = ((RealActivityScope) scope).loadExecutor;
+      if (executor != null) return executor;
+    }
+    return null;
+  }
+
+  /** Returns the keys of our bundlers, loaded ones first, each in the order they registered. */
+  List<String> getBundlerKeys() {
+    List<String> keys = new ArrayList<>(bundlers.size() + toloadThisTime.size());
+    for (Registration bundler : bundlers) keys.add(bundler.getMortarBundleKey());
+    for (Registration bundler : toloadThisTime) {
+      if (!bundlers.contains(bundler)) keys.add(bundler.getMortarBundleKey());
+    }
+    return keys;
+  }
+
+  /**
+   * Returns the number of entries in the bundle the given bundler last saved or was restored
+   * from, or -1 if there is none, e.g. because it is a {@link CompactBundler}.
+   */
+  int getSavedBundleSize(String bundlerKey) {
+    Bundle bundle = getNamedBundle(bundlerKey, latestSavedInstanceState, false);
+    return bundle == null ? -1 : bundle.size();
   }
 
   private Bundle getNestedBundle(Bundler bundler, Bundle bundle, boolean eager) {
@@ -187,4 +564,123 @@ class RealActivityScope extends RealScope implements MortarActivityScope {
 
     return unionLoadingState((RealActivityScope) parent);
   }
+
+  /**
+   * A {@link Bundler} or {@link CompactBundler} in our load and save queues, which share their
+   * bookkeeping. Equal to any other registration of the same instance.
+   */
+  private abstract static class Registration {
+    abstract Scoped getScoped();
+
+    abstract String getMortarBundleKey();
+
+    abstract void load(RealActivityScope scope);
+
+    abstract void save(RealActivityScope scope);
+
+    /** True if this is an {@link AsyncBundler}'s registration, whose load can be prepared. */
+    boolean isAsync() {
+      return false;
+    }
+
+    @Override public final boolean equals(Object o) {
+      return o instanceof Registration && ((Registration) o).getScoped().equals(getScoped());
+    }
+
+    @Override public final int hashCode() {
+      return getScoped().hashCode();
+    }
+
+    @Override public final String toString() {
+      return getScoped().toString();
+    }
+  }
+
+  private static final class BundlerRegistration extends Registration {
+    final Bundler bundler;
+
+    BundlerRegistration(Bundler bundler) {
+      this.bundler = bundler;
+    }
+
+    @Override Scoped getScoped() {
+      return bundler;
+    }
+
+    @Override String getMortarBundleKey() {
+      return bundler.getMortarBundleKey();
+    }
+
+    @Override void load(RealActivityScope scope) {
+      scope.load(bundler);
+    }
+
+    @Override void save(RealActivityScope scope) {
+      scope.save(bundler);
+    }
+
+    @Override boolean isAsync() {
+      return bundler instanceof AsyncBundler;
+    }
+  }
+
+  private static final class CompactRegistration extends Registration {
+    final CompactBundler compactBundler;
+
+    CompactRegistration(CompactBundler compactBundler) {
+      this.compactBundler = compactBundler;
+    }
+
+    @Override Scoped getScoped() {
+      return compactBundler;
+    }
+
+    @Override String getMortarBundleKey() {
+      return compactBundler.getMortarBundleKey();
+    }
+
+    @Override void load(RealActivityScope scope) {
+      scope.loadCompact(compactBundler);
+    }
+
+    @Override void save(RealActivityScope scope) {
+      scope.saveCompact(compactBundler);
+    }
+  }
+
+  /** An {@link AsyncBundler#prepareLoad} call, and the bundle its onLoad is to get. */
+  private static final class PreparedLoad extends FutureTask<Void> {
+    final Bundle savedState;
+
+    PreparedLoad(final AsyncBundler bundler, final Bundle savedState) {
+      super(new Runnable() {
+        @Override public void run() {
+          bundler.prepareLoad(savedState);
+        }
+      }, null);
+      this.savedState = savedState;
+    }
+
+    /** Waits for the preparation to finish, rethrowing anything it threw. */
+    void await() {
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            get();
+            return;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+          }
+        }
+      } finally {
+        if (interrupted) Thread.currentThread().interrupt();
+      }
+    }
+  }
 }
@@ -16,47 +16,188 @@
 package mortar;
 
 import android.content.Context;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static java.lang.Integer.toHexString;
 import static java.lang.String.format;
 
 class RealScope implements MortarScope {
+  private static final ScopeListener[] NO_LISTENERS = new ScopeListener[0];
 
-  protected final Map<String, RealScope> children = new LinkedHashMap<>();
+  /**
+   * In a {@link #concurrent} tree this map is never modified once assigned: writers replace it
+   * with a modified copy while holding the {@link #treeLock}, so readers need no lock.
+   */
+  protected volatile Map<String, RealScope> children = new LinkedHashMap<>();
 
-  protected boolean dead;
+  protected volatile boolean dead;
 
-  private final Set<Scoped> tearDowns = new HashSet<>();
-  private final Object graph;
+  /** Guards every change to the tree. Does nothing unless the tree is {@link #concurrent}. */
+  final Lock treeLock;
+  /** Held while a lazy scope builds its graph, so that it is built once. Same caveat. */
+  private final Lock buildLock;
+
+  /** Only set on the root. */
+  final LazyGraphStats lazyGraphStats;
+  /** Only set on the root, and only if {@link Mortar#enableScopeRecycling} was called. */
+  volatile ScopeRecycler recycler;
+  /** Only set on the root, and only if {@link Mortar#enableLeakWatchdog} was called. */
+  volatile LeakWatchdog leakWatchdog;
+  /** Only set on the root, and only if {@link Mortar#enableBundlerTiming} was called. */
+  BundlerTimings bundlerTimings;
+  /**
+   * Only meaningful on the root. Never modified once assigned: {@link Mortar#addScopeListener}
+   * replaces it with a copy, so that events cost a single read while no one is listening.
+   */
+  volatile ScopeListener[] listeners = NO_LISTENERS;
+
+  private final boolean concurrent;
+  private final Set<Scoped> tearDowns;
   private final RealScope parent;
+  private final RealScope root;
   private final String name;
 
-  RealScope(Object objectGraph) {
-    this(MortarScope.ROOT_NAME, null, objectGraph);
+  /** Set until {@link #getObjectGraph} first builds the {@link #graph}. */
+  private volatile ObjectGraphFactory graphFactory;
+  private Object graph;
+  /**
+   * The factory this scope was created with by {@link #createLazyChild}, or null if it was not
+   * lazy. Kept after the graph is built, to tell the {@link ScopeRecycler} what built it.
+   */
+  private final ObjectGraphFactory lazyFactory;
+
+  /** Registrants whose onEnterScope is running, guarded by the {@link #treeLock}. */
+  private List<Scoped> entering;
+  /** Set once {@link #exitScope} has taken the registrants to exit. */
+  private boolean exiting;
+
+  /** Built lazily by {@link #getPath}. */
+  private String path;
+  /** True if the root's {@link #pathIndex} holds this scope. */
+  private boolean indexed;
+
+  /** Only set on the root, holds every scope {@link #findScope} has resolved. */
+  private Map<String, RealScope> pathIndex;
+  /** Only set on the root, and only while no teardown is running. */
+  private ScopeTeardown idleTeardown;
+
+  /** The contexts made by {@link #createContext}, for {@link ScopeFootprint} to find. */
+  private final List<WeakReference<MortarContextWrapper>> contexts = new ArrayList<>();
+
+  RealScope(Object objectGraph, boolean concurrent) {
+    this(MortarScope.ROOT_NAME, null, objectGraph, null, null, concurrent);
   }
 
-  RealScope(String name, RealScope parent, Object graph) {
+  RealScope(String name, RealScope parent, Object graph, ObjectGraphFactory graphFactory,
+      ObjectGraphFactory lazyFactory) {
+    this(name, parent, graph, graphFactory, lazyFactory, parent.concurrent);
+  }
+
+  /** Takes the place of a scope that was never handed out, e.g. to specialize its type. */
+  RealScope(RealScope original) {
+    this(original.name, original.parent, original.graph, original.graphFactory,
+        original.lazyFactory);
+  }
+
+  private RealScope(String name, RealScope parent, Object graph, ObjectGraphFactory graphFactory,
+      ObjectGraphFactory lazyFactory, boolean concurrent) {
     this.graph = graph;
+    this.graphFactory = graphFactory;
+    this.lazyFactory = lazyFactory;
     this.parent = parent;
+    this.root = parent == null ? this : parent.root;
+    this.lazyGraphStats = parent == null ? new LazyGraphStats() : null;
     this.name = name;
+    this.concurrent = concurrent;
+
+    if (!concurrent) {
+      treeLock = NO_LOCK;
+      buildLock = NO_LOCK;
+      tearDowns = new LinkedHashSet<>();
+    } else {
+      treeLock = parent == null ? new ReentrantLock() : parent.treeLock;
+      buildLock = graphFactory == null ? NO_LOCK : new ReentrantLock();
+      tearDowns = new CopyOnWriteArraySet<>();
+      if (parent == null) pathIndex = new ConcurrentHashMap<>();
+    }
   }
 
   @Override public final String getName() {
     return name;
   }
 
+  @Override public final String getPath() {
+    String result = path;
+    if (result != null) return result;
+
+    // Collects the ancestors below the nearest one that knows its path, then appends downward:
+    // recursing would overflow the stack on a deep tree. Only our own path is kept, as keeping
+    // every ancestor's would take quadratic memory.
+    List<RealScope> unresolved = new ArrayList<>();
+    RealScope scope = this;
+    for (; scope != null && scope.path == null; scope = scope.parent) unresolved.add(scope);
+    StringBuilder builder = new StringBuilder();
+    if (scope != null) builder.append(scope.path);
+    for (int i = unresolved.size() - 1; i >= 0; i--) {
+      // The root's name starts the path.
+      if (scope != null || i < unresolved.size() - 1) builder.append(PATH_SEPARATOR);
+      builder.append(unresolved.get(i).name);
+    }
+    result = builder.toString();
+    path = result;
+    return result;
+  }
+
   @Override public final <T> T getObjectGraph() {
     assertNotDead();
+    if (graphFactory != null) buildGraph();
     //noinspection unchecked
     return (T) graph;
   }
 
+  private void buildGraph() {
+    // Built under our own lock rather than the tree's, as factories are free to be slow or to
+    // use the tree. Only threads that want this graph wait for it.
+    buildLock.lock();
+    try {
+      ObjectGraphFactory factory = graphFactory;
+      if (factory == null) {
+        // Built by whoever held the lock before us, unless the scope died meanwhile.
+        assertNotDead();
+        return;
+      }
+      Object built = factory.createObjectGraph();
+      treeLock.lock();
+      try {
+        if (graphFactory == factory) {
+          graph = built;
+          graphFactory = null;
+          root.lazyGraphStats.materialized.incrementAndGet();
+        }
+      } finally {
+        treeLock.unlock();
+      }
+      // Destroyed while we built, in which case the graph was dropped.
+      assertNotDead();
+    } finally {
+      buildLock.unlock();
+    }
+  }
+
   @Override public void register(Scoped scoped) {
     if (scoped instanceof Bundler) {
       throw new IllegalArgumentException(format("Scope %s cannot register %s instance %s. "
@@ -68,9 +209,48 @@ class RealScope implements MortarScope {
     doRegister(scoped);
   }
 
-  void doRegister(Scoped scoped) {
-    assertNotDead();
-    if (tearDowns.add(scoped)) scoped.onEnterScope(this);
+  /**
+   * Calls {@link Scoped#onEnterScope} without the lock held. A teardown that catches a registrant
+   * mid-entry leaves it out, and the registering thread sends its onExitScope once it has
+   * entered, so a registrant never exits before it enters.
+   *
+   * @return false if the scoped was already registered here, in which case nothing is done
+   */
+  boolean doRegister(Scoped scoped) {
+    treeLock.lock();
+    try {
+      assertNotDead();
+      if (!tearDowns.add(scoped)) return false;
+      if (entering == null) entering = new ArrayList<>(1);
+      entering.add(scoped);
+    } finally {
+      treeLock.unlock();
+    }
+
+    boolean exitNow;
+    try {
+      scoped.onEnterScope(this);
+    } finally {
+      treeLock.lock();
+      try {
+        entering.remove(scoped);
+        exitNow = exiting;
+      } finally {
+        treeLock.unlock();
+      }
+    }
+    if (exitNow) {
+      // Torn down already, so there is no registration to tell the listeners about.
+      scoped.onExitScope();
+      return true;
+    }
+
+    ScopeListener[] listeners = root.listeners;
+    if (listeners.length > 0) {
+      long now = System.nanoTime();
+      for (ScopeListener listener : listeners) listener.onRegistered(this, scoped, now);
+    }
+    return true;
   }
 
   RealScope getParent() {
@@ -81,23 +261,200 @@ class RealScope implements MortarScope {
     return parent == null;
   }
 
+  RealScope getRoot() {
+    return root;
+  }
+
   @Override public RealScope findChild(String childName) {
     assertNotDead();
     return children.get(childName);
   }
 
-  @Override public MortarScope createChild(String childName, Object childObjectGraph) {
+  @Override public RealScope findScope(String path) {
     assertNotDead();
-    if (children.containsKey(childName)) {
-      throw new IllegalArgumentException(name + " Scope already has a child named " + childName);
+    if (root.pathIndex != null) {
+      RealScope found = root.pathIndex.get(path);
+      if (found != null) return found;
     }
-    RealScope child = new RealScope(childName, this, childObjectGraph);
-    children.put(childName, child);
+
+    treeLock.lock();
+    try {
+      if (root.pathIndex == null) root.pathIndex = new HashMap<>();
+
+      RealScope found = root.walk(path);
+      if (found != null && !found.dead) {
+        // The walk matched every name, so the given path is identical to the scope's own.
+        if (found.path == null) found.path = path;
+        found.indexed = true;
+        root.pathIndex.put(path, found);
+      }
+      return found;
+    } finally {
+      treeLock.unlock();
+    }
+  }
+
+  /** Resolves the given path one {@link #findChild} at a time, starting from the receiver. */
+  private RealScope walk(String path) {
+    int end = path.indexOf(PATH_SEPARATOR);
+    if (end == -1) end = path.length();
+    if (!path.regionMatches(0, name, 0, end) || name.length() != end) return null;
+
+    RealScope scope = this;
+    while (scope != null && end < path.length()) {
+      int start = end + PATH_SEPARATOR.length();
+      end = path.indexOf(PATH_SEPARATOR, start);
+      if (end == -1) end = path.length();
+      scope = scope.children.get(path.substring(start, end));
+    }
+    return scope;
+  }
+
+  @Override public MortarScope createChild(String childName, Object childObjectGraph) {
+    return doCreateChild(childName, childObjectGraph, null);
+  }
+
+  @Override public MortarScope createLazyChild(String childName, ObjectGraphFactory graphFactory) {
+    if (graphFactory == null) throw new NullPointerException("graphFactory must not be null");
+    return doCreateChild(childName, null, graphFactory);
+  }
+
+  RealScope doCreateChild(String childName, Object childObjectGraph,
+      ObjectGraphFactory graphFactory) {
+    RealScope child = addChild(childName, childObjectGraph, graphFactory);
+    child.announceCreated();
     return child;
   }
 
+  /** Creates a plain child and puts it in the tree, without telling any {@link #listeners}. */
+  RealScope addChild(String childName, Object childObjectGraph,
+      ObjectGraphFactory graphFactory) {
+    ObjectGraphFactory lazyFactory = graphFactory;
+    ScopeRecycler recycler = lazyFactory != null ? root.recycler : null;
+    ScopeRecycler.Recycled recycled = null;
+    boolean matches = false;
+    if (recycler != null) {
+      treeLock.lock();
+      try {
+        recycled = recycler.peek(this, childName);
+      } finally {
+        treeLock.unlock();
+      }
+      // Factories are user code, so they are compared without the lock held.
+      matches = recycled != null && recycled.factory.equals(lazyFactory);
+    }
+
+    treeLock.lock();
+    try {
+      assertNotDead();
+      if (children.containsKey(childName)) {
+        throw new IllegalArgumentException(name + " Scope already has a child named " + childName);
+      }
+      if (recycler != null) {
+        childObjectGraph = recycler.take(this, childName, recycled, matches);
+        if (childObjectGraph != null) graphFactory = null;
+      }
+      RealScope child =
+          new RealScope(childName, this, childObjectGraph, graphFactory, lazyFactory);
+      putChild(childName, child);
+      if (lazyFactory != null) root.lazyGraphStats.created.incrementAndGet();
+      return child;
+    } finally {
+      treeLock.unlock();
+    }
+  }
+
+  /**
+   * Called before a {@link ScopeBatch} creates scopes below this one. Must be balanced by a
+   * call to {@link #endBatch}.
+   */
+  void beginBatch() {
+    assertNotDead();
+  }
+
+  void endBatch() {
+  }
+
+  /** Tells the root's {@link #listeners} that this scope, now in its final form, was created. */
+  void announceCreated() {
+    ScopeListener[] listeners = root.listeners;
+    if (listeners.length == 0) return;
+    long now = System.nanoTime();
+    for (ScopeListener listener : listeners) listener.onScopeCreated(this, now);
+  }
+
+  /** Must be called on the root. */
+  void addListener(ScopeListener listener) {
+    treeLock.lock();
+    try {
+      ScopeListener[] copy = new ScopeListener[listeners.length + 1];
+      System.arraycopy(listeners, 0, copy, 0, listeners.length);
+      copy[listeners.length] = listener;
+      listeners = copy;
+    } finally {
+      treeLock.unlock();
+    }
+  }
+
+  /** Must be called on the root. */
+  void removeListener(ScopeListener listener) {
+    treeLock.lock();
+    try {
+      for (int i = 0; i < listeners.length; i++) {
+        if (!listeners[i].equals(listener)) continue;
+        if (listeners.length == 1) {
+          listeners = NO_LISTENERS;
+        } else {
+          ScopeListener[] copy = new ScopeListener[listeners.length - 1];
+          System.arraycopy(listeners, 0, copy, 0, i);
+          System.arraycopy(listeners, i + 1, copy, i, copy.length - i);
+          listeners = copy;
+        }
+        return;
+      }
+    } finally {
+      treeLock.unlock();
+    }
+  }
+
   @Override public Context createContext(Context parentContext) {
-    return new MortarContextWrapper(parentContext, this);
+    MortarContextWrapper context = new MortarContextWrapper(parentContext, this);
+    treeLock.lock();
+    try {
+      Iterator<WeakReference<MortarContextWrapper>> i = contexts.iterator();
+      while (i.hasNext()) {
+        if (i.next().get() == null) i.remove();
+      }
+      contexts.add(new WeakReference<>(context));
+    } finally {
+      treeLock.unlock();
+    }
+    return context;
+  }
+
+  /** Returns the graph of this scope, or the factory that is to build it. Never builds it. */
+  Object peekObjectGraph() {
+    Object factory = graphFactory;
+    return factory != null ? factory : graph;
+  }
+
+  Set<Scoped> getRegistrants() {
+    return tearDowns;
+  }
+
+  /** Returns the contexts made by {@link #createContext} that are still in use. */
+  List<MortarContextWrapper> getLiveContexts() {
+    List<MortarContextWrapper> live = new ArrayList<>();
+    treeLock.lock();
+    try {
+      for (WeakReference<MortarContextWrapper> reference : contexts) {
+        MortarContextWrapper context = reference.get();
+        if (context != null) live.add(context);
+      }
+    } finally {
+      treeLock.unlock();
+    }
+    return live;
   }
 
   @Override public void destroyChild(MortarScope child) {
@@ -120,23 +477,142 @@ class RealScope implements MortarScope {
     if (scope.getParent() != this) {
       throw new IllegalArgumentException("Replacement scope must have receiver as parent");
     }
-    children.put(childName, scope);
+    treeLock.lock();
+    try {
+      RealScope replaced = putChild(childName, scope);
+      if (replaced != null && replaced.indexed) {
+        replaced.indexed = false;
+        scope.path = replaced.path;
+        scope.indexed = true;
+        root.pathIndex.put(scope.path, scope);
+      }
+    } finally {
+      treeLock.unlock();
+    }
   }
 
+  /**
+   * Called by {@link ScopeTeardown} on the live parent of the scope it destroyed. The scopes
+   * below that one leave the tree along with it, and are not removed one by one.
+   */
   void onChildDestroyed(RealScope child) {
-    children.remove(child.getName());
+    treeLock.lock();
+    try {
+      removeChild(child.getName());
+    } finally {
+      treeLock.unlock();
+    }
+  }
+
+  /** Must hold the {@link #treeLock}. */
+  private RealScope putChild(String childName, RealScope child) {
+    if (!concurrent) return children.put(childName, child);
+
+    Map<String, RealScope> copy = new LinkedHashMap<>(children);
+    RealScope replaced = copy.put(childName, child);
+    children = copy;
+    return replaced;
+  }
+
+  /** Must hold the {@link #treeLock}. */
+  private void removeChild(String childName) {
+    if (!concurrent) {
+      children.remove(childName);
+      return;
+    }
+
+    Map<String, RealScope> copy = new LinkedHashMap<>(children);
+    copy.remove(childName);
+    children = copy;
   }
 
+  /** See {@link ScopeTeardown} for the order in which scopes and their registrants exit. */
   void doDestroy() {
     if (dead) return;
-    dead = true;
 
+    // Take the root's teardown while we run, so that a scope destroyed from an onExitScope
+    // call, or from another thread, gets a fresh one rather than trampling ours.
+    ScopeTeardown teardown;
+    treeLock.lock();
+    try {
+      teardown = root.idleTeardown;
+      root.idleTeardown = null;
+    } finally {
+      treeLock.unlock();
+    }
+    if (teardown == null) teardown = new ScopeTeardown();
+    try {
+      teardown.destroy(this);
+    } finally {
+      treeLock.lock();
+      root.idleTeardown = teardown;
+      treeLock.unlock();
+    }
+  }
+
+  /** Called by {@link ScopeTeardown} once this scope and all of its descendants are dead. */
+  void exitScope() {
+    treeLock.lock();
+    try {
+      exiting = true;
+      if (indexed) {
+        indexed = false;
+        root.pathIndex.remove(path);
+      }
+      // Our children have exited already. Dropping them all at once spares copying the map
+      // for each of them in a concurrent tree.
+      if (!children.isEmpty()) children = new LinkedHashMap<>();
+      // Whoever is registering these sends their onExitScope, once their onEnterScope returns.
+      if (entering != null) tearDowns.removeAll(entering);
+      if (graphFactory != null) {
+        graphFactory = null;
+        root.lazyGraphStats.skipped.incrementAndGet();
+      }
+    } finally {
+      treeLock.unlock();
+    }
     for (Scoped s : tearDowns) s.onExitScope();
     tearDowns.clear();
-    if (parent != null) parent.onChildDestroyed(this);
+    if (pathIndex != null) pathIndex.clear();
+
+    if (root.recycler != null) {
+      treeLock.lock();
+      try {
+        root.recycler.forgetChildrenOf(this);
+      } finally {
+        treeLock.unlock();
+      }
+    }
+
+    LeakWatchdog watchdog = root.leakWatchdog;
+    if (watchdog != null) {
+      watchdog.watch(this, "destroyed scope " + getPath());
+      for (MortarContextWrapper context : getLiveContexts()) {
+        watchdog.watch(context, "context of destroyed scope " + getPath());
+      }
+    }
+
+    ScopeListener[] listeners = root.listeners;
+    if (listeners.length > 0) {
+      long now = System.nanoTime();
+      for (ScopeListener listener : listeners) listener.onScopeDestroyed(this, now);
+    }
+  }
+
+  /**
+   * Called by {@link ScopeTeardown} on the scope it was asked to destroy, after {@link
+   * #exitScope}. Hands a lazily built graph to the {@link ScopeRecycler}, if there is one.
+   */
+  void recycle() {
+    // A graph that was never built was dropped along with its factory by exitScope.
+    if (root.recycler == null || lazyFactory == null || graph == null || parent == null) return;
 
-    List<RealScope> snapshot = new ArrayList<>(children.values());
-    for (RealScope child : snapshot) child.doDestroy();
+    treeLock.lock();
+    try {
+      if (!parent.dead) root.recycler.offer(parent, name, lazyFactory, graph);
+    } finally {
+      treeLock.unlock();
+    }
   }
 
   @Override public String toString() {
@@ -152,4 +628,28 @@ class RealScope implements MortarScope {
   void assertNotDead() {
     if (isDead()) throw new IllegalStateException("Scope " + getName() + " was destroyed");
   }
+
+  /** Used by trees that are only ever touched from one thread. */
+  private static final Lock NO_LOCK = new Lock() {
+    @Override public void lock() {
+    }
+
+    @Override public void lockInterruptibly() {
+    }
+
+    @Override public boolean tryLock() {
+      return true;
+    }
+
+    @Override public boolean tryLock(long time, TimeUnit unit) {
+      return true;
+    }
+
+    @Override public void unlock() {
+    }
+
+    @Override public Condition newCondition() {
+      throw new UnsupportedOperationException();
+    }
+  };
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds or creates a set of scopes below one parent in a single call, e.g. to restore a whole
+ * backstack after the process is respawned:
+ * <pre><code>
+ * List&lt;MortarScope&gt; scopes = new ScopeBatch(activityScope)
+ *     .child("ChatListScreen", chatListGraph)
+ *     .child("ChatScreen", chatGraph).descend()
+ *     .child("MessageScreen", messageGraph)
+ *     .create();
+ * </code></pre>
+ *
+ * When the parent is a {@link MortarActivityScope}, the new scopes do not each run their own
+ * {@link Bundler#onLoad} pass as they are created. Instead a single pass loads every {@link
+ * Bundler} registered below the parent during the batch, parents before children, once all of
+ * the scopes exist.
+ */
+public final class ScopeBatch {
+  private static final int TOP = -1;
+
+  private final RealScope parent;
+  private final List<String> names = new ArrayList<>();
+  private final List<Object> graphs = new ArrayList<>();
+  private final List<ObjectGraphFactory> graphFactories = new ArrayList<>();
+  /** For each entry, the index of the entry it is a child of, or {@link #TOP}. */
+  private final List<Integer> parents = new ArrayList<>();
+
+  private int currentParent = TOP;
+
+  public ScopeBatch(MortarScope parent) {
+    if (parent == null) throw new NullPointerException("parent must not be null");
+    this.parent = (RealScope) parent;
+  }
+
+  /** Adds a child of the current parent, see {@link MortarScope#createChild}. */
+  public ScopeBatch child(String name, Object objectGraph) {
+    return add(name, objectGraph, null);
+  }
+
+  /** Adds a lazy child of the current parent, see {@link MortarScope#createLazyChild}. */
+  public ScopeBatch lazyChild(String name, ObjectGraphFactory graphFactory) {
+    if (graphFactory == null) throw new NullPointerException("graphFactory must not be null");
+    return add(name, null, graphFactory);
+  }
+
+  /** Makes the scope added last the parent of those added after it. */
+  public ScopeBatch descend() {
+    if (names.isEmpty()) throw new IllegalStateException("No child to descend into");
+    currentParent = names.size() - 1;
+    return this;
+  }
+
+  /**
+   * Finds or creates each scope, in the order they were added, and returns them in that order.
+   * As with {@link MortarScope#findChild}, a scope that already exists is returned as is.
+   *
+   * @throws IllegalStateException if the parent has been destroyed
+   */
+  public List<MortarScope> create() {
+    List<MortarScope> scopes = new ArrayList<>(names.size());
+    parent.beginBatch();
+    try {
+      for (int i = 0; i < names.size(); i++) {
+        int parentIndex = parents.get(i);
+        MortarScope scopeParent = parentIndex == TOP ? parent : scopes.get(parentIndex);
+
+        String name = names.get(i);
+        MortarScope scope = scopeParent.findChild(name);
+        if (scope == null) {
+          ObjectGraphFactory graphFactory = graphFactories.get(i);
+          scope = graphFactory == null ? scopeParent.createChild(name, graphs.get(i))
+              : scopeParent.createLazyChild(name, graphFactory);
+        }
+        scopes.add(scope);
+      }
+    } finally {
+      parent.endBatch();
+    }
+    return scopes;
+  }
+
+  private ScopeBatch add(String name, Object objectGraph, ObjectGraphFactory graphFactory) {
+    if (name == null) throw new NullPointerException("name must not be null");
+    names.add(name);
+    graphs.add(objectGraph);
+    graphFactories.add(graphFactory);
+    parents.add(currentParent);
+    return this;
+  }
+}
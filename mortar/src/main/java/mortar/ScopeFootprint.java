@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Estimated heap pinned by a scope and its descendants, see {@link Mortar#measureFootprint}.
+ * Each object is charged to the first scope found to reach it, parents before children, and
+ * nothing that the scope's ancestors also reach is charged at all, since destroying the scope
+ * would not free it. Objects shared with scopes elsewhere in the tree are charged here.
+ */
+public final class ScopeFootprint {
+  private final String name;
+  /** Set up front for the scope measured, and by {@link #getPath} for those below it. */
+  private volatile String path;
+  /** The footprint whose children include this one, or null for the scope measured. */
+  private ScopeFootprint parent;
+  private final long graphBytes;
+  private final long registrantBytes;
+  private final long inflaterBytes;
+  private final List<ScopeFootprint> children;
+  private final long subtreeBytes;
+
+  private ScopeFootprint(String name, String path, long graphBytes, long registrantBytes,
+      long inflaterBytes, List<ScopeFootprint> children) {
+    this.name = name;
+    this.path = path;
+    this.graphBytes = graphBytes;
+    this.registrantBytes = registrantBytes;
+    this.inflaterBytes = inflaterBytes;
+    this.children = Collections.unmodifiableList(children);
+
+    long subtree = getOwnBytes();
+    for (ScopeFootprint child : children) {
+      child.parent = this;
+      subtree += child.subtreeBytes;
+    }
+    this.subtreeBytes = subtree;
+  }
+
+  static ScopeFootprint measure(RealScope scope) {
+    scope.assertNotDead();
+    HeapEstimator estimator = new HeapEstimator();
+    // Whatever the ancestors reach is marked seen, so that it isn't charged below.
+    for (RealScope ancestor = scope.getParent(); ancestor != null;
+        ancestor = ancestor.getParent()) {
+      estimator.measure(ancestor.peekObjectGraph());
+      measureRegistrants(estimator, ancestor);
+      measureInflaters(estimator, ancestor);
+    }
+
+    // Measures scopes in pre-order, so that parents are charged before their children, without
+    // recursing: trees can be deeper than the stack. Footprints are built in post-order.
+    Deque<Measuring> stack = new ArrayDeque<>();
+    stack.push(new Measuring(estimator, scope));
+    while (true) {
+      Measuring top = stack.peek();
+      if (top.unmeasured.hasNext()) {
+        stack.push(new Measuring(estimator, top.unmeasured.next()));
+        continue;
+      }
+      stack.pop();
+      ScopeFootprint footprint = top.toFootprint(stack.isEmpty() ? scope.getPath() : null);
+      if (stack.isEmpty()) return footprint;
+      stack.peek().children.add(footprint);
+    }
+  }
+
+  /** A scope whose own bytes are measured, and whose children may not all be yet. */
+  private static final class Measuring {
+    final RealScope scope;
+    final long graphBytes;
+    final long registrantBytes;
+    final long inflaterBytes;
+    final Iterator<RealScope> unmeasured;
+    final List<ScopeFootprint> children = new ArrayList<>();
+
+    Measuring(HeapEstimator estimator, RealScope scope) {
+      this.scope = scope;
+      graphBytes = estimator.measure(scope.peekObjectGraph());
+      registrantBytes = measureRegistrants(estimator, scope);
+      inflaterBytes = measureInflaters(estimator, scope);
+      unmeasured = scope.children.values().iterator();
+    }
+
+    ScopeFootprint toFootprint(String path) {
+      return new ScopeFootprint(scope.getName(), path, graphBytes, registrantBytes,
+          inflaterBytes, children);
+    }
+  }
+
+  private static long measureRegistrants(HeapEstimator estimator, RealScope scope) {
+    long bytes = 0;
+    for (Scoped scoped : scope.getRegistrants()) {
+      bytes += estimator.measure(scoped);
+    }
+    return bytes;
+  }
+
+  private static long measureInflaters(HeapEstimator estimator, RealScope scope) {
+    long bytes = 0;
+    for (MortarContextWrapper context : scope.getLiveContexts()) {
+      bytes += estimator.measure(context.peekInflater());
+    }
+    return bytes;
+  }
+
+  /** Returns the {@link MortarScope#getName name} of the scope measured. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the {@link MortarScope#getPath path} of the scope measured. */
+  public String getPath() {
+    String result = path;
+    if (result != null) return result;
+
+    // Only the scope measured starts out with its path, as building all of them would take
+    // quadratic time and memory on a deep tree. Walks up rather than recursing, for the same.
+    List<String> names = new ArrayList<>();
+    ScopeFootprint footprint = this;
+    for (; footprint.path == null; footprint = footprint.parent) names.add(footprint.name);
+    StringBuilder builder = new StringBuilder(footprint.path);
+    for (int i = names.size() - 1; i >= 0; i--) {
+      builder.append(MortarScope.PATH_SEPARATOR).append(names.get(i));
+    }
+    result = builder.toString();
+    path = result;
+    return result;
+  }
+
+  /** Returns the bytes of the scope's object graph, or of the factory still to build it. */
+  public long getGraphBytes() {
+    return graphBytes;
+  }
+
+  /** Returns the bytes of the {@link Scoped} instances registered with the scope. */
+  public long getRegistrantBytes() {
+    return registrantBytes;
+  }
+
+  /** Returns the bytes of the LayoutInflaters cached by the scope's contexts. */
+  public long getInflaterBytes() {
+    return inflaterBytes;
+  }
+
+  /** Returns the bytes charged to the scope itself, not counting its children. */
+  public long getOwnBytes() {
+    return graphBytes + registrantBytes + inflaterBytes;
+  }
+
+  /** Returns the bytes charged to the scope and all of its descendants. */
+  public long getSubtreeBytes() {
+    return subtreeBytes;
+  }
+
+  /** Returns the footprints of the scope's children, in the order they were created. */
+  public List<ScopeFootprint> getChildren() {
+    return children;
+  }
+
+  @Override public String toString() {
+    return "ScopeFootprint{"
+        + "path='" + getPath() + '\''
+        + ", graphBytes=" + graphBytes
+        + ", registrantBytes=" + registrantBytes
+        + ", inflaterBytes=" + inflaterBytes
+        + ", subtreeBytes=" + subtreeBytes
+        + '}';
+  }
+}
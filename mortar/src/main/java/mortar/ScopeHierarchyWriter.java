@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes a tree of scopes a scope at a time, as text or JSON, without recursion. Holds only the
+ * path from the top to the current scope. See {@link MortarScopeDevHelper#writeHierarchy}.
+ */
+final class ScopeHierarchyWriter {
+  /** A scope whose children are being written. */
+  private static final class Frame {
+    final Iterator<RealScope> children;
+    boolean wroteChild;
+
+    Frame(RealScope scope) {
+      this.children = scope.children.values().iterator();
+    }
+  }
+
+  private final Writer out;
+  private final boolean json;
+  private final Deque<Frame> path = new ArrayDeque<>();
+  /** Bit {@code d} is set while the ancestor at depth {@code d + 1} is a last child. */
+  private final BitSet lastChildren = new BitSet();
+  private final StringBuilder line = new StringBuilder();
+
+  private ScopeHierarchyWriter(Writer out, boolean json) {
+    this.out = out;
+    this.json = json;
+  }
+
+  static void write(RealScope top, Writer out, boolean json) throws IOException {
+    new ScopeHierarchyWriter(out, json).write(top);
+  }
+
+  private void write(RealScope top) throws IOException {
+    if (!json) out.write("Mortar Hierarchy:\n");
+    open(top, 0);
+    path.push(new Frame(top));
+
+    while (!path.isEmpty()) {
+      Frame frame = path.peek();
+      if (!frame.children.hasNext()) {
+        path.pop();
+        if (json) out.write("]}");
+        continue;
+      }
+
+      RealScope child = frame.children.next();
+      int depth = path.size();
+      lastChildren.set(depth - 1, !frame.children.hasNext());
+      if (json && frame.wroteChild) out.write(',');
+      frame.wroteChild = true;
+      open(child, depth);
+      path.push(new Frame(child));
+    }
+  }
+
+  /** Writes the scope, but not its children. */
+  private void open(RealScope scope, int depth) throws IOException {
+    String type = typeOf(scope);
+    List<String> bundlerKeys = scope instanceof RealActivityScope
+        ? ((RealActivityScope) scope).getBundlerKeys() : Collections.<String>emptyList();
+    int scopedCount = scope.getRegistrants().size();
+
+    line.setLength(0);
+    if (json) {
+      line.append("{\"name\":");
+      appendJsonString(scope.getName());
+      line.append(",\"type\":\"").append(type).append('"');
+      line.append(",\"destroyed\":").append(scope.isDead());
+      line.append(",\"scopedCount\":").append(scopedCount);
+      line.append(",\"bundlerKeys\":[");
+      for (int i = 0; i < bundlerKeys.size(); i++) {
+        if (i > 0) line.append(',');
+        appendJsonString(bundlerKeys.get(i));
+      }
+      line.append("],\"children\":[");
+    } else {
+      MortarScopeDevHelper.appendLinePrefix(line, depth, lastChildren);
+      line.append("SCOPE ").append(scope.getName());
+      line.append(" (").append(type).append(", ").append(scopedCount).append(" scoped");
+      if (!bundlerKeys.isEmpty()) line.append(", bundlers ").append(bundlerKeys);
+      if (scope.isDead()) line.append(", destroyed");
+      line.append(")\n");
+    }
+    out.append(line);
+  }
+
+  /** Returns the name of the public interface the scope implements. */
+  static String typeOf(MortarScope scope) {
+    return scope instanceof MortarActivityScope ? "MortarActivityScope" : "MortarScope";
+  }
+
+  private void appendJsonString(String value) {
+    line.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        line.append('\\').append(c);
+      } else if (c < 0x20) {
+        line.append(String.format("\\u%04x", (int) c));
+      } else {
+        line.append(c);
+      }
+    }
+    line.append('"');
+  }
+}
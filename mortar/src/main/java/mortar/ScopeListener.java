@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+
+/**
+ * Told of the lifecycle events of every scope in a tree, once {@link Mortar#addScopeListener
+ * added} to its root. Times are {@link System#nanoTime()} readings. Calls are made on the thread
+ * that caused the event, which in a {@link Mortar#createConcurrentRootScope concurrent} tree may
+ * be any thread, and must return quickly: they run inline with the work they report.
+ */
+public interface ScopeListener {
+  /** Called once the scope is in the tree, before any of its bundlers load. */
+  void onScopeCreated(MortarScope scope, long timeNanos);
+
+  /** Called once each registrant of the scope has been sent {@link Scoped#onExitScope}. */
+  void onScopeDestroyed(MortarScope scope, long timeNanos);
+
+  /** Called when {@link MortarScope#register} adds a registrant, after its onEnterScope. */
+  void onRegistered(MortarScope scope, Scoped scoped, long timeNanos);
+
+  /**
+   * Called after a {@link Bundler} or {@link CompactBundler} of an activity scope loads, with the
+   * state it was given. The state is always null for a CompactBundler.
+   */
+  void onLoaded(MortarScope scope, Scoped bundler, Bundle state, long startNanos,
+      long endNanos);
+
+  /**
+   * Called after a {@link Bundler} or {@link CompactBundler} of an activity scope saves, with the
+   * bundle it wrote into. The state is always null for a CompactBundler. Not called for an
+   * {@link IncrementalBundler} that was clean, and so was not asked to save.
+   */
+  void onSaved(MortarScope scope, Scoped bundler, Bundle state, long startNanos, long endNanos);
+}
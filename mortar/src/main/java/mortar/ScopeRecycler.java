@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Keeps the object graphs of recently destroyed {@link MortarScope#createLazyChild lazy} scopes,
+ * so that a child created again under the same parent with the same name, and with an {@link
+ * Object#equals equal} {@link ObjectGraphFactory}, can reuse the graph of its predecessor instead
+ * of building a new one. A graph kept for a child whose new factory is not equal to the old one
+ * is discarded. Holds at most {@link #getMaxSize()} graphs, evicting the least recently recycled
+ * first, and forgets the graphs of a parent's children when the parent is destroyed. Enabled per
+ * tree by {@link Mortar#enableScopeRecycling}.
+ *
+ * <p>A recycled graph keeps whatever state its singletons held. Factories should only be equal
+ * if the graphs they build are interchangeable, e.g. because they add equal modules to the same
+ * parent graph. Factories that don't override equals only match themselves.
+ */
+public final class ScopeRecycler {
+  private final int maxSize;
+  /** The lock of the tree whose graphs are kept, which guards {@link #graphs}. */
+  private final Lock treeLock;
+  private final Map<Key, Recycled> graphs;
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private final AtomicInteger evictions = new AtomicInteger();
+
+  ScopeRecycler(int maxSize, Lock treeLock) {
+    if (maxSize < 1) throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    this.maxSize = maxSize;
+    this.treeLock = treeLock;
+    this.graphs = new LinkedHashMap<Key, Recycled>(16, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<Key, Recycled> eldest) {
+        if (size() <= ScopeRecycler.this.maxSize) return false;
+        evictions.incrementAndGet();
+        return true;
+      }
+    };
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /** Returns the number of graphs waiting to be recycled. */
+  public int getSize() {
+    treeLock.lock();
+    try {
+      return graphs.size();
+    } finally {
+      treeLock.unlock();
+    }
+  }
+
+  /** Returns the number of lazy scopes created with a recycled graph. */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of lazy scopes created with no graph to recycle, including those whose
+   * graph was discarded because their factory did not match.
+   */
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /** Returns the number of graphs dropped to make room for newer ones. */
+  public int getEvictions() {
+    return evictions.get();
+  }
+
+  @Override public String toString() {
+    return "ScopeRecycler{"
+        + "maxSize=" + maxSize
+        + ", hits=" + getHits()
+        + ", misses=" + getMisses()
+        + ", evictions=" + getEvictions()
+        + '}';
+  }
+
+  /** Must hold the tree lock. */
+  void offer(RealScope parent, String name, ObjectGraphFactory factory, Object graph) {
+    graphs.put(new Key(parent, name), new Recycled(factory, graph));
+  }
+
+  /**
+   * Must hold the tree lock. Returns what is kept for the given child, or null, leaving it in
+   * place so that its factory can be compared to the new one without the lock held.
+   */
+  Recycled peek(RealScope parent, String name) {
+    return graphs.get(new Key(parent, name));
+  }
+
+  /**
+   * Must hold the tree lock. Returns the graph {@link #peek} found, if it is still kept and its
+   * factory {@code matches} the new one, or null on a miss. Whatever was kept for the child is
+   * discarded either way, as the name now stands for a different graph.
+   */
+  Object take(RealScope parent, String name, Recycled peeked, boolean matches) {
+    Recycled recycled = graphs.remove(new Key(parent, name));
+    if (recycled == null || recycled != peeked || !matches) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return recycled.graph;
+  }
+
+  /** Must hold the tree lock. */
+  void forgetChildrenOf(RealScope parent) {
+    if (graphs.isEmpty()) return;
+    for (Iterator<Key> i = graphs.keySet().iterator(); i.hasNext(); ) {
+      if (i.next().parent == parent) i.remove();
+    }
+  }
+
+  static final class Recycled {
+    final ObjectGraphFactory factory;
+    final Object graph;
+
+    Recycled(ObjectGraphFactory factory, Object graph) {
+      this.factory = factory;
+      this.graph = graph;
+    }
+  }
+
+  private static final class Key {
+    final RealScope parent;
+    final String name;
+
+    Key(RealScope parent, String name) {
+      this.parent = parent;
+      this.name = name;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key other = (Key) o;
+      return parent == other.parent && name.equals(other.name);
+    }
+
+    @Override public int hashCode() {
+      return 31 * System.identityHashCode(parent) + name.hashCode();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.ArrayList;
+
+/**
+ * Destroys a subtree of scopes without recursion, reusing its work lists from one teardown to
+ * the next. Every scope in the subtree is marked dead before any {@link Scoped#onExitScope} is
+ * sent, so registrants cannot resurrect any part of it. Scopes then exit in post-order: children
+ * before their parents, siblings in the order they were created, and the registrants of each
+ * scope in the order they registered.
+ */
+final class ScopeTeardown {
+  /** Scopes whose children have yet to be visited. */
+  private final ArrayList<RealScope> pending = new ArrayList<>();
+  /** Pre-order, visiting siblings last to first; read backward it is the post-order we want. */
+  private final ArrayList<RealScope> doomed = new ArrayList<>();
+
+  void destroy(RealScope top) {
+    try {
+      // Registrations and new children are refused from here on, but the exits below run
+      // without the lock held.
+      top.treeLock.lock();
+      try {
+        pending.add(top);
+        while (!pending.isEmpty()) {
+          RealScope scope = pending.remove(pending.size() - 1);
+          if (scope.dead) continue;
+          scope.dead = true;
+          doomed.add(scope);
+          for (RealScope child : scope.children.values()) pending.add(child);
+        }
+      } finally {
+        top.treeLock.unlock();
+      }
+
+      // Someone else is destroying it already.
+      if (doomed.isEmpty()) return;
+
+      for (int i = doomed.size() - 1; i >= 0; i--) {
+        doomed.get(i).exitScope();
+      }
+      // Only the top leaves a live scope. The rest leave along with it, see exitScope.
+      RealScope parent = top.getParent();
+      if (parent != null && !parent.isDead()) parent.onChildDestroyed(top);
+      top.recycle();
+    } finally {
+      pending.clear();
+      doomed.clear();
+    }
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The shape of a scope and its descendants at one moment: their names, types, bundler keys and
+ * the sizes of their bundlers' saved state. Taken by {@link MortarScopeDevHelper#snapshotTree},
+ * and compared by {@link #diff}, e.g. to check that a scope restored from its saved state in a
+ * new process ends up as it was before.
+ */
+public final class ScopeTreeSnapshot {
+  private final String name;
+  private final String type;
+  private final Map<String, Integer> bundleSizes;
+  private final List<ScopeTreeSnapshot> children;
+
+  private ScopeTreeSnapshot(String name, String type, Map<String, Integer> bundleSizes,
+      List<ScopeTreeSnapshot> children) {
+    this.name = name;
+    this.type = type;
+    this.bundleSizes = Collections.unmodifiableMap(bundleSizes);
+    this.children = Collections.unmodifiableList(children);
+  }
+
+  static ScopeTreeSnapshot of(RealScope scope) {
+    // Without recursing, as trees can be deeper than the stack. Snapshots are built in
+    // post-order, once all of their children's are.
+    Deque<Taking> stack = new ArrayDeque<>();
+    stack.push(new Taking(scope));
+    while (true) {
+      Taking top = stack.peek();
+      if (top.untaken.hasNext()) {
+        stack.push(new Taking(top.untaken.next()));
+        continue;
+      }
+      stack.pop();
+      ScopeTreeSnapshot snapshot = top.toSnapshot();
+      if (stack.isEmpty()) return snapshot;
+      stack.peek().children.add(snapshot);
+    }
+  }
+
+  /** A scope whose children's snapshots may not all be taken yet. */
+  private static final class Taking {
+    final RealScope scope;
+    final Iterator<RealScope> untaken;
+    final List<ScopeTreeSnapshot> children = new ArrayList<>();
+
+    Taking(RealScope scope) {
+      this.scope = scope;
+      untaken = scope.children.values().iterator();
+    }
+
+    ScopeTreeSnapshot toSnapshot() {
+      Map<String, Integer> bundleSizes = new LinkedHashMap<>();
+      if (scope instanceof RealActivityScope) {
+        RealActivityScope activityScope = (RealActivityScope) scope;
+        for (String key : activityScope.getBundlerKeys()) {
+          bundleSizes.put(key, activityScope.getSavedBundleSize(key));
+        }
+      }
+      return new ScopeTreeSnapshot(scope.getName(), ScopeHierarchyWriter.typeOf(scope),
+          bundleSizes, children);
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Returns {@code MortarActivityScope} or {@code MortarScope}. */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * Returns the number of entries in the bundle each bundler of the scope last saved or was
+   * restored from, -1 if it has none, by bundle key in registration order.
+   */
+  public Map<String, Integer> getBundleSizes() {
+    return bundleSizes;
+  }
+
+  /** Returns the snapshots of the scope's children, in the order they were created. */
+  public List<ScopeTreeSnapshot> getChildren() {
+    return children;
+  }
+
+  /**
+   * Returns a line for each way the given snapshot differs from this one, or an empty list if
+   * they are alike. Children are matched by name, bundlers by key, and the order of either does
+   * not matter. Each line starts with the path of the scope it concerns, relative to the top of
+   * the snapshots.
+   */
+  public List<String> diff(ScopeTreeSnapshot other) {
+    List<String> differences = new ArrayList<>();
+    // Holds the pairs still to compare, and the lines to add once those ahead of them are done,
+    // so that the lines come out in the order a recursive walk would give without recursing.
+    Deque<Object> work = new ArrayDeque<>();
+    work.push(new Pair(null, this, other));
+    while (!work.isEmpty()) {
+      Object next = work.pop();
+      if (next instanceof String) {
+        differences.add((String) next);
+      } else {
+        diffHere((Pair) next, differences, work);
+      }
+    }
+    return differences;
+  }
+
+  /** Two snapshots to diff, and the pair of their parents. */
+  private static final class Pair {
+    final Pair parent;
+    final ScopeTreeSnapshot left;
+    final ScopeTreeSnapshot right;
+    private String path;
+
+    Pair(Pair parent, ScopeTreeSnapshot left, ScopeTreeSnapshot right) {
+      this.parent = parent;
+      this.left = left;
+      this.right = right;
+      if (parent == null) path = left.name;
+    }
+
+    /**
+     * Returns the path of the left snapshot, relative to the top of the diff. Built only for
+     * scopes that differ, as building them all would take quadratic time on a deep tree.
+     */
+    String path() {
+      if (path != null) return path;
+      List<String> names = new ArrayList<>();
+      Pair pair = this;
+      for (; pair.path == null; pair = pair.parent) names.add(pair.left.name);
+      StringBuilder builder = new StringBuilder(pair.path);
+      for (int i = names.size() - 1; i >= 0; i--) {
+        builder.append(MortarScope.PATH_SEPARATOR).append(names.get(i));
+      }
+      path = builder.toString();
+      return path;
+    }
+  }
+
+  /** Adds how the pair differs, and pushes what is left to do for its children. */
+  private static void diffHere(Pair pair, List<String> out, Deque<Object> work) {
+    ScopeTreeSnapshot here = pair.left;
+    ScopeTreeSnapshot other = pair.right;
+    String name = here.name;
+    String type = here.type;
+    Map<String, Integer> bundleSizes = here.bundleSizes;
+    if (!name.equals(other.name)) {
+      out.add(pair.path() + ": renamed to " + other.name);
+    }
+    if (!type.equals(other.type)) {
+      out.add(pair.path() + ": type " + type + " became " + other.type);
+    }
+
+    for (Map.Entry<String, Integer> entry : bundleSizes.entrySet()) {
+      String key = entry.getKey();
+      Integer otherSize = other.bundleSizes.get(key);
+      if (otherSize == null) {
+        out.add(pair.path() + ": lost bundler " + key);
+      } else if (!otherSize.equals(entry.getValue())) {
+        out.add(pair.path() + ": bundle of " + key + " had " + entry.getValue() + " entries, now "
+            + otherSize);
+      }
+    }
+    for (String key : other.bundleSizes.keySet()) {
+      if (!bundleSizes.containsKey(key)) out.add(pair.path() + ": gained bundler " + key);
+    }
+
+    Map<String, ScopeTreeSnapshot> otherChildren = new LinkedHashMap<>();
+    for (ScopeTreeSnapshot child : other.children) otherChildren.put(child.name, child);
+    List<Object> later = new ArrayList<>();
+    for (ScopeTreeSnapshot child : here.children) {
+      ScopeTreeSnapshot otherChild = otherChildren.remove(child.name);
+      later.add(otherChild == null
+          ? pair.path() + MortarScope.PATH_SEPARATOR + child.name + ": missing"
+          : new Pair(pair, child, otherChild));
+    }
+    for (String added : otherChildren.keySet()) {
+      later.add(pair.path() + MortarScope.PATH_SEPARATOR + added + ": added");
+    }
+    for (int i = later.size() - 1; i >= 0; i--) work.push(later.get(i));
+  }
+
+  /**
+   * Snapshots are equal if they have the same names, types, bundle sizes and children, all in
+   * the same order. Unlike {@link #diff}, order matters here.
+   */
+  @Override public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof ScopeTreeSnapshot)) return false;
+
+    Deque<ScopeTreeSnapshot> work = new ArrayDeque<>();
+    work.push(this);
+    work.push((ScopeTreeSnapshot) o);
+    while (!work.isEmpty()) {
+      ScopeTreeSnapshot right = work.pop();
+      ScopeTreeSnapshot left = work.pop();
+      if (left == right) continue;
+      if (!left.name.equals(right.name)
+          || !left.type.equals(right.type)
+          || !sameInOrder(left.bundleSizes, right.bundleSizes)
+          || left.children.size() != right.children.size()) {
+        return false;
+      }
+      for (int i = 0; i < left.children.size(); i++) {
+        work.push(left.children.get(i));
+        work.push(right.children.get(i));
+      }
+    }
+    return true;
+  }
+
+  private static boolean sameInOrder(Map<String, Integer> left, Map<String, Integer> right) {
+    if (left.size() != right.size()) return false;
+    Iterator<Map.Entry<String, Integer>> i = right.entrySet().iterator();
+    for (Map.Entry<String, Integer> entry : left.entrySet()) {
+      if (!entry.equals(i.next())) return false;
+    }
+    return true;
+  }
+
+  @Override public int hashCode() {
+    return name.hashCode() * 31 + type.hashCode();
+  }
+
+  /** Prints the snapshot in the format of {@link MortarScopeDevHelper#scopeHierarchyToString}. */
+  @Override public String toString() {
+    return MortarScopeDevHelper.nodeToString(new SnapshotNode(this));
+  }
+
+  static final class SnapshotNode implements MortarScopeDevHelper.Node {
+    private final ScopeTreeSnapshot snapshot;
+
+    SnapshotNode(ScopeTreeSnapshot snapshot) {
+      this.snapshot = snapshot;
+    }
+
+    @Override public String getName() {
+      StringBuilder result = new StringBuilder("SCOPE ").append(snapshot.name)
+          .append(" (").append(snapshot.type);
+      if (!snapshot.bundleSizes.isEmpty()) result.append(", bundles ").append(snapshot.bundleSizes);
+      return result.append(')').toString();
+    }
+
+    @Override public List<MortarScopeDevHelper.Node> getChildNodes() {
+      List<MortarScopeDevHelper.Node> childNodes = new ArrayList<>();
+      for (ScopeTreeSnapshot child : snapshot.children) {
+        childNodes.add(new SnapshotNode(child));
+      }
+      return childNodes;
+    }
+  }
+}
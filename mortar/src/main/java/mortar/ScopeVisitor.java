@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Walks the descendants of a scope depth first, calling {@link #preVisit} on each before its
+ * children and {@link #postVisit} after them. Only scopes of the visitor's type are visited; the
+ * subtrees below any others are skipped, as are scopes destroyed before their turn comes.
+ *
+ * <p>The walk keeps its place on an explicit stack rather than the call stack, so very deep trees
+ * are safe, and reuses that stack from one walk to the next. Walks may nest, e.g. from an {@link
+ * Bundler#onLoad} that creates a scope, but a visitor must only be used from one thread.
+ */
+abstract class ScopeVisitor<S extends RealScope> {
+  enum Result {
+    /** Go on to the scope's children. */
+    CONTINUE,
+    /** Skip the scope's children, and its {@link #postVisit}. */
+    SKIP_CHILDREN,
+    /** End the walk. */
+    STOP
+  }
+
+  /** Pushed above a visited scope to mark its turn for {@link #postVisit}. */
+  private static final Object POST_VISIT = new Object();
+
+  private final Class<S> type;
+  private final ArrayList<Object> stack = new ArrayList<>();
+
+  ScopeVisitor(Class<S> type) {
+    this.type = type;
+  }
+
+  abstract Result preVisit(S scope);
+
+  void postVisit(S scope) {
+  }
+
+  /** Returns false if the walk was {@link Result#STOP stopped}, true if it ran to the end. */
+  final boolean visitDescendants(RealScope top) {
+    int base = stack.size();
+    try {
+      pushChildren(top);
+      while (stack.size() > base) {
+        Object next = stack.remove(stack.size() - 1);
+        if (next == POST_VISIT) {
+          S scope = type.cast(stack.remove(stack.size() - 1));
+          if (!scope.isDead()) postVisit(scope);
+          continue;
+        }
+
+        RealScope scope = (RealScope) next;
+        if (scope.isDead() || !type.isInstance(scope)) continue;
+
+        S visited = type.cast(scope);
+        Result result = preVisit(visited);
+        if (result == Result.STOP) return false;
+        if (result == Result.SKIP_CHILDREN) continue;
+
+        stack.add(visited);
+        stack.add(POST_VISIT);
+        pushChildren(visited);
+      }
+      return true;
+    } finally {
+      while (stack.size() > base) stack.remove(stack.size() - 1);
+    }
+  }
+
+  /** Pushes the children of the given scope so that they pop in the order they were created. */
+  private void pushChildren(RealScope scope) {
+    int first = stack.size();
+    for (RealScope child : scope.children.values()) {
+      stack.add(child);
+    }
+    for (int i = first, j = stack.size() - 1; i < j; i++, j--) {
+      Collections.swap(stack, i, j);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The state most recently written by a {@link CompactBundler}, as handed to its {@link
+ * CompactBundler#onLoad}. Like a {@link android.os.Bundle}, a missing key or a value of another
+ * type reads as the given default.
+ */
+public final class StateReader {
+  private final Map<String, Object> values;
+
+  StateReader(Map<String, Object> values) {
+    this.values = values;
+  }
+
+  public boolean containsKey(String key) {
+    return values.containsKey(key);
+  }
+
+  public Set<String> keySet() {
+    return values.keySet();
+  }
+
+  public boolean getBoolean(String key, boolean defaultValue) {
+    Object value = values.get(key);
+    return value instanceof Boolean ? (Boolean) value : defaultValue;
+  }
+
+  public int getInt(String key, int defaultValue) {
+    Object value = values.get(key);
+    return value instanceof Integer ? (Integer) value : defaultValue;
+  }
+
+  public long getLong(String key, long defaultValue) {
+    Object value = values.get(key);
+    return value instanceof Long ? (Long) value : defaultValue;
+  }
+
+  public float getFloat(String key, float defaultValue) {
+    Object value = values.get(key);
+    return value instanceof Float ? (Float) value : defaultValue;
+  }
+
+  public double getDouble(String key, double defaultValue) {
+    Object value = values.get(key);
+    return value instanceof Double ? (Double) value : defaultValue;
+  }
+
+  public String getString(String key) {
+    Object value = values.get(key);
+    return value instanceof String ? (String) value : null;
+  }
+
+  public byte[] getByteArray(String key) {
+    Object value = values.get(key);
+    return value instanceof byte[] ? (byte[]) value : null;
+  }
+}
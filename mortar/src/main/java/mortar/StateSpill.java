@@ -0,0 +1,292 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+
+/**
+ * Moves oversized {@link Bundler} state out of the saved Bundle and into files, one per bundler
+ * under a directory tree that mirrors the scope tree. The Bundle keeps a token holding the
+ * generation of the file's contents, so that a file left over from another save is never
+ * mistaken for the state a token stands for. Bundles spilled or restored in this process are kept
+ * in memory, so that the disk is only read after the process dies, and only their files are ever
+ * deleted, so that scopes that never spilled cost no disk access when they are destroyed.
+ *
+ * @see Mortar#enableStateSpill
+ */
+final class StateSpill {
+  /** Turns a Bundle into bytes and back. */
+  interface Codec {
+    /** Returns null if the bundle can't be flattened, e.g. because it holds a binder. */
+    byte[] encode(Bundle bundle);
+
+    Bundle decode(byte[] bytes);
+  }
+
+  static final Codec PARCEL = new Codec() {
+    @Override public byte[] encode(Bundle bundle) {
+      Parcel parcel = Parcel.obtain();
+      try {
+        parcel.writeBundle(bundle);
+        return parcel.marshall();
+      } catch (RuntimeException e) {
+        return null;
+      } finally {
+        parcel.recycle();
+      }
+    }
+
+    @Override public Bundle decode(byte[] bytes) {
+      Parcel parcel = Parcel.obtain();
+      try {
+        parcel.unmarshall(bytes, 0, bytes.length);
+        parcel.setDataPosition(0);
+        return parcel.readBundle(StateSpill.class.getClassLoader());
+      } finally {
+        parcel.recycle();
+      }
+    }
+  };
+
+  /** The key of the generation in a token. */
+  static final String TOKEN_KEY = "mortar.StateSpill";
+
+  private static final int MAGIC = 0x4d535350; // "MSSP"
+  /** Magic, generation and length. */
+  private static final int HEADER_SIZE = 4 + 8 + 4;
+  /** More than a parcel ever spends on a value's type, length and padding. */
+  private static final int VALUE_OVERHEAD = 16;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /** Start from the clock, so that generations keep rising across processes. */
+  private static final AtomicLong generations = new AtomicLong(System.currentTimeMillis() << 16);
+
+  private static final class Spilled {
+    final long generation;
+    final Bundle bundle;
+
+    Spilled(long generation, Bundle bundle) {
+      this.generation = generation;
+      this.bundle = bundle;
+    }
+  }
+
+  private final File dir;
+  private final int maxBytes;
+  private final Codec codec;
+  private final Map<File, Spilled> spilled = new HashMap<>();
+
+  StateSpill(File dir, int maxBytes, Codec codec) {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+    this.codec = codec;
+  }
+
+  static boolean isToken(Bundle bundle) {
+    return bundle != null && bundle.containsKey(TOKEN_KEY);
+  }
+
+  /**
+   * Returns the bundle to save for the given path in place of the given one: the same bundle if
+   * it is small enough or can't be written out, otherwise a token for it.
+   */
+  Bundle spill(String path, Bundle bundle) {
+    if (sizeBound(bundle, maxBytes) <= maxBytes) return bundle;
+    byte[] bytes = codec.encode(bundle);
+    if (bytes == null || bytes.length <= maxBytes) return bundle;
+
+    File file = fileFor(path);
+    long generation = generations.incrementAndGet();
+    try {
+      write(file, generation, bytes);
+    } catch (IOException e) {
+      // Better to risk a bundle that is too large than to lose it.
+      return bundle;
+    }
+    spilled.put(file, new Spilled(generation, bundle));
+
+    Bundle token = new Bundle();
+    token.putLong(TOKEN_KEY, generation);
+    return token;
+  }
+
+  /** Returns the bundle saved for the given path and token, or null if it has been lost. */
+  Bundle restore(String path, Bundle token) {
+    long generation = token.getLong(TOKEN_KEY);
+    File file = fileFor(path);
+    Spilled known = spilled.get(file);
+    if (known != null && known.generation == generation) return known.bundle;
+
+    byte[] bytes;
+    try {
+      bytes = read(file, generation);
+    } catch (IOException e) {
+      bytes = null;
+    }
+    if (bytes == null) return null;
+
+    Bundle bundle = codec.decode(bytes);
+    spilled.put(file, new Spilled(generation, bundle));
+    return bundle;
+  }
+
+  /**
+   * Deletes everything spilled or restored in this process for the scope with the given path and
+   * those below it, and the directories that leaves empty.
+   */
+  void forget(String scopePath) {
+    if (spilled.isEmpty()) return;
+
+    File scopeDir = fileFor(scopePath);
+    String prefix = scopeDir.getPath() + File.separator;
+    Iterator<File> files = spilled.keySet().iterator();
+    while (files.hasNext()) {
+      File file = files.next();
+      if (!file.getPath().startsWith(prefix)) continue;
+
+      files.remove();
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+      // Deleting a directory fails while it still holds anything.
+      File parent = file.getParentFile();
+      while (!parent.equals(scopeDir.getParentFile()) && parent.delete()) {
+        parent = parent.getParentFile();
+      }
+    }
+  }
+
+  /**
+   * Returns at least the size of the given bundle once parcelled, or more than the given limit
+   * if that is all that can be cheaply said, e.g. because it holds values of other types than
+   * strings, primitives, their arrays and bundles. Spares small bundles being parcelled just to
+   * learn that they are small.
+   */
+  static long sizeBound(Bundle bundle, long limit) {
+    long size = HEADER_SIZE;
+    for (String key : bundle.keySet()) {
+      size += stringBound(key) + sizeBound(bundle.get(key), limit - size);
+      if (size > limit) return size;
+    }
+    return size;
+  }
+
+  private static long sizeBound(Object value, long limit) {
+    if (value == null || value instanceof Boolean || value instanceof Byte
+        || value instanceof Character || value instanceof Short || value instanceof Integer
+        || value instanceof Long || value instanceof Float || value instanceof Double) {
+      return VALUE_OVERHEAD;
+    }
+    if (value instanceof String) return stringBound((String) value);
+    if (value instanceof Bundle) return VALUE_OVERHEAD + sizeBound((Bundle) value, limit);
+    if (value instanceof byte[]) return VALUE_OVERHEAD + ((byte[]) value).length;
+    if (value instanceof int[]) return VALUE_OVERHEAD + 4L * ((int[]) value).length;
+    if (value instanceof long[]) return VALUE_OVERHEAD + 8L * ((long[]) value).length;
+    if (value instanceof String[]) {
+      long size = VALUE_OVERHEAD;
+      for (String string : (String[]) value) {
+        size += stringBound(string);
+        if (size > limit) break;
+      }
+      return size;
+    }
+    return limit + 1;
+  }
+
+  /** Parcels write strings as a length and UTF-16 with a terminator, padded to four bytes. */
+  private static long stringBound(String string) {
+    return string == null ? VALUE_OVERHEAD : VALUE_OVERHEAD + 2L * string.length();
+  }
+
+  /** Returns the file for the given path, one directory per scope. */
+  private File fileFor(String path) {
+    File file = dir;
+    for (String segment : path.split(MortarScope.PATH_SEPARATOR, -1)) {
+      file = new File(file, fileName(segment));
+    }
+    return file;
+  }
+
+  /** Escapes everything but letters, digits, '-' and '_', so any name is a safe file name. */
+  private static String fileName(String segment) {
+    if (segment.isEmpty()) return "%";
+
+    StringBuilder name = new StringBuilder(segment.length());
+    for (byte b : segment.getBytes(UTF_8)) {
+      char c = (char) (b & 0xff);
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-'
+          || c == '_') {
+        name.append(c);
+      } else {
+        name.append('%').append(HEX[c >> 4]).append(HEX[c & 15]);
+      }
+    }
+    return name.toString();
+  }
+
+  private static void write(File file, long generation, byte[] bytes) throws IOException {
+    File parent = file.getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) throw new IOException("Cannot create " + parent);
+
+    RandomAccessFile out = new RandomAccessFile(file, "rw");
+    try {
+      int size = HEADER_SIZE + bytes.length;
+      out.setLength(size);
+      MappedByteBuffer buffer = out.getChannel().map(READ_WRITE, 0, size);
+      // The contents go in before the header that vouches for them.
+      buffer.position(HEADER_SIZE);
+      buffer.put(bytes);
+      buffer.putInt(0, MAGIC).putLong(4, generation).putInt(12, bytes.length);
+    } finally {
+      out.close();
+    }
+  }
+
+  /** Returns null if the file is missing, or holds anything but the given generation. */
+  private static byte[] read(File file, long generation) throws IOException {
+    if (!file.isFile()) return null;
+
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      long size = in.length();
+      if (size < HEADER_SIZE) return null;
+      MappedByteBuffer buffer = in.getChannel().map(READ_ONLY, 0, size);
+      if (buffer.getInt() != MAGIC || buffer.getLong() != generation) return null;
+      int length = buffer.getInt();
+      if (length != size - HEADER_SIZE) return null;
+
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return bytes;
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import static mortar.CompactState.BOOLEAN;
+import static mortar.CompactState.BYTES;
+import static mortar.CompactState.DOUBLE;
+import static mortar.CompactState.FLOAT;
+import static mortar.CompactState.INT;
+import static mortar.CompactState.LONG;
+import static mortar.CompactState.STRING;
+
+/**
+ * Receives the state of a {@link CompactBundler} from its {@link CompactBundler#onSave}, and is
+ * only valid for the duration of that call. Keys are stored once per save however many bundlers
+ * use them, so there is no need to keep them short.
+ */
+public final class StateWriter {
+  private final CompactState.Encoder encoder;
+  boolean open;
+
+  StateWriter(CompactState.Encoder encoder) {
+    this.encoder = encoder;
+  }
+
+  public StateWriter putBoolean(String key, boolean value) {
+    encoder.field(key, BOOLEAN).writeByte(value ? 1 : 0);
+    return this;
+  }
+
+  public StateWriter putInt(String key, int value) {
+    encoder.field(key, INT).writeVarint((value << 1) ^ (value >> 31));
+    return this;
+  }
+
+  public StateWriter putLong(String key, long value) {
+    encoder.field(key, LONG).writeVarint64((value << 1) ^ (value >> 63));
+    return this;
+  }
+
+  public StateWriter putFloat(String key, float value) {
+    encoder.field(key, FLOAT).writeFixed32(Float.floatToIntBits(value));
+    return this;
+  }
+
+  public StateWriter putDouble(String key, double value) {
+    encoder.field(key, DOUBLE).writeFixed64(Double.doubleToLongBits(value));
+    return this;
+  }
+
+  /** Null values are not written, and so read back as null. */
+  public StateWriter putString(String key, String value) {
+    if (value != null) encoder.field(key, STRING).writeString(value);
+    return this;
+  }
+
+  /** Null values are not written, and so read back as null. */
+  public StateWriter putByteArray(String key, byte[] value) {
+    if (value != null) {
+      CompactState.Buffer buffer = encoder.field(key, BYTES);
+      buffer.writeVarint(value.length);
+      buffer.write(value, 0, value.length);
+    }
+    return this;
+  }
+}
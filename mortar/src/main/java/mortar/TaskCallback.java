@@ -0,0 +1,26 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+/**
+ * Receives the outcome of work given to {@link Presenter#submit}, on the main thread, and only
+ * while the presenter still has the view it had when the work was submitted.
+ */
+public interface TaskCallback<V, T> {
+  void onSuccess(V view, T result);
+
+  void onFailure(V view, Throwable error);
+}
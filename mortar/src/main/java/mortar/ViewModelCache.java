@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+
+/**
+ * Keeps what a {@link Presenter} renders across {@link Presenter#dropView} and {@link
+ * Presenter#takeView}, e.g. through a rotation, so that each new view is bound from the model
+ * built for the first, instead of the presenter building it all again. Call {@link #bind} from
+ * {@link Presenter#onLoad}:
+ * <pre><code>
+ * private final ViewModelCache&lt;FriendListView, List&lt;User>> friends =
+ *     new ViewModelCache&lt;>(this, new ViewModelCache.Binder&lt;FriendListView, List&lt;User>>() {
+ *       ...
+ *     });
+ *
+ * {@literal @}Override protected void onLoad(Bundle savedInstanceState) {
+ *   friends.bind(getView(), savedInstanceState);
+ * }
+ * </code></pre>
+ * The model is forgotten when the presenter exits its scope. Must be used on the main thread.
+ */
+public final class ViewModelCache<V, M> {
+  public interface Binder<V, M> {
+    /**
+     * Builds the model from scratch, from the given state if there is any. Called by the first
+     * {@link #bind}, and the first after the model is {@link #invalidate() invalidated}.
+     */
+    M load(Bundle savedInstanceState);
+
+    /** Shows the given model on the given view. Called by every {@link #bind}. */
+    void bind(V view, M model);
+  }
+
+  private final Binder<? super V, M> binder;
+  private final PresenterEventListener exitListener = new PresenterEventListener() {
+    @Override public void onPresenterEvent(PresenterEvent event) {
+      if (event == PresenterEvent.EXIT_SCOPE) invalidate();
+    }
+  };
+  private M model;
+  private boolean cached;
+  private int loads;
+
+  /** Creates a cache for the given presenter, which it listens to to forget its model. */
+  public ViewModelCache(Presenter<?> presenter, Binder<? super V, M> binder) {
+    if (binder == null) throw new NullPointerException("binder must not be null");
+    this.binder = binder;
+    presenter.addEventListener(exitListener);
+  }
+
+  /**
+   * Binds the given view to the cached model, first {@link Binder#load loading} it if there is
+   * none. The saved state is only read when loading, as the cached model is at least as new.
+   */
+  public void bind(V view, Bundle savedInstanceState) {
+    if (view == null) throw new NullPointerException("view must not be null");
+    if (!cached) {
+      model = binder.load(savedInstanceState);
+      cached = true;
+      loads++;
+    }
+    binder.bind(view, model);
+  }
+
+  /** Returns the cached model, or null if there is none. */
+  public M get() {
+    return model;
+  }
+
+  /** Returns true if {@link #bind} will use the cached model rather than load a new one. */
+  public boolean isCached() {
+    return cached;
+  }
+
+  /** Replaces the cached model, e.g. after a change. Does not bind it, see {@link #bind}. */
+  public void set(M model) {
+    this.model = model;
+    cached = true;
+  }
+
+  /** Forgets the cached model, so that the next {@link #bind} loads it again. */
+  public void invalidate() {
+    model = null;
+    cached = false;
+  }
+
+  /** Returns how many times the model has been loaded, to see how often the cache helped. */
+  public int getLoadCount() {
+    return loads;
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+// Robolectric allows us to use Bundles.
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public class BundlerTimingsTest {
+  static class PayloadBundler implements Bundler {
+    final String key;
+    String payload;
+
+    PayloadBundler(String key, String payload) {
+      this.key = key;
+      this.payload = payload;
+    }
+
+    @Override public String getMortarBundleKey() {
+      return key;
+    }
+
+    @Override public void onEnterScope(MortarScope scope) {
+    }
+
+    @Override public void onLoad(Bundle savedInstanceState) {
+    }
+
+    @Override public void onSave(Bundle outState) {
+      outState.putString("payload", payload);
+    }
+
+    @Override public void onExitScope() {
+    }
+  }
+
+  private MortarScope root;
+  private BundlerTimings timings;
+
+  @Before public void setUp() {
+    root = Mortar.createRootScope(new Object());
+    timings = new BundlerTimings(StateSpillTest.PAYLOAD);
+    Mortar.addScopeListener(root, timings.listener);
+  }
+
+  @Test public void recordsEachBundlerOfEachScope() {
+    MortarActivityScope activityScope = Mortar.createActivityScope(root, "activity", new Object());
+    activityScope.onCreate(null);
+    activityScope.register(new PayloadBundler("small", "ab"));
+    MortarScope child = activityScope.createChild("child", new Object());
+    child.register(new PayloadBundler("large", "abcdefghij"));
+    activityScope.onSaveInstanceState(new Bundle());
+    activityScope.onSaveInstanceState(new Bundle());
+
+    Map<String, Map<String, BundlerStats>> snapshot = timings.snapshot();
+    assertThat(snapshot.keySet()).containsExactly("Root/activity", "Root/activity/child");
+
+    BundlerStats small = snapshot.get("Root/activity").get("small");
+    assertThat(small.getScopePath()).isEqualTo("Root/activity");
+    assertThat(small.getLoadNanos().getCount()).isEqualTo(1);
+    assertThat(small.getSaveNanos().getCount()).isEqualTo(2);
+    assertThat(small.getSavedBytes().getMax()).isEqualTo(2);
+
+    BundlerStats large = snapshot.get("Root/activity/child").get("large");
+    assertThat(large.getSavedBytes().getCount()).isEqualTo(2);
+    assertThat(large.getSavedBytes().getMax()).isEqualTo(10);
+  }
+
+  @Test public void statsAddUpAcrossInstancesOfAScope() {
+    for (int i = 0; i < 3; i++) {
+      MortarActivityScope activityScope =
+          Mortar.createActivityScope(root, "activity", new Object());
+      activityScope.onCreate(null);
+      activityScope.register(new PayloadBundler("bundler", "x"));
+      root.destroyChild(activityScope);
+    }
+
+    BundlerStats stats = timings.snapshot().get("Root/activity").get("bundler");
+    assertThat(stats.getLoadNanos().getCount()).isEqualTo(3);
+  }
+
+  @Test public void snapshotIsUnaffectedByLaterWork() {
+    MortarActivityScope activityScope = Mortar.createActivityScope(root, "activity", new Object());
+    activityScope.onCreate(null);
+    activityScope.register(new PayloadBundler("bundler", "x"));
+    Map<String, Map<String, BundlerStats>> before = timings.snapshot();
+    activityScope.onSaveInstanceState(new Bundle());
+
+    assertThat(before.get("Root/activity").get("bundler").getSaveNanos().getCount()).isEqualTo(0);
+    timings.reset();
+    assertThat(timings.snapshot()).isEmpty();
+  }
+
+  @Test public void sizesAreOnlyMeasuredOnRequest() {
+    MortarScope otherRoot = Mortar.createRootScope(new Object());
+    BundlerTimings unsized = Mortar.enableBundlerTiming(otherRoot, false);
+    assertThat(unsized.isMeasuringSizes()).isFalse();
+    assertThat(Mortar.enableBundlerTiming(otherRoot, true)).isSameAs(unsized);
+
+    MortarActivityScope activityScope =
+        Mortar.createActivityScope(otherRoot, "activity", new Object());
+    activityScope.onCreate(null);
+    activityScope.register(new PayloadBundler("bundler", "x"));
+    activityScope.onSaveInstanceState(new Bundle());
+
+    BundlerStats stats = unsized.snapshot().get("Root/activity").get("bundler");
+    assertThat(stats.getSaveNanos().getCount()).isEqualTo(1);
+    assertThat(stats.getSavedBytes().getCount()).isEqualTo(0);
+  }
+}
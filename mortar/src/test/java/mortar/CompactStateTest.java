@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class CompactStateTest {
+  @Test public void roundTripsEveryType() {
+    CompactState.Encoder encoder = new CompactState.Encoder();
+    encoder.beginRecord("a/b")
+        .putBoolean("boolean", true)
+        .putInt("int", -42)
+        .putInt("maxInt", Integer.MAX_VALUE)
+        .putInt("minInt", Integer.MIN_VALUE)
+        .putLong("long", Long.MIN_VALUE)
+        .putFloat("float", 1.5f)
+        .putDouble("double", -2.25)
+        .putString("string", "h\u00e9llo \u2603")
+        .putString("null", null)
+        .putByteArray("bytes", new byte[] { 1, 2, 3 });
+    encoder.endRecord();
+
+    StateReader reader = CompactState.decode(encoder.encode()).get("a/b");
+    assertThat(reader.getBoolean("boolean", false)).isTrue();
+    assertThat(reader.getInt("int", 0)).isEqualTo(-42);
+    assertThat(reader.getInt("maxInt", 0)).isEqualTo(Integer.MAX_VALUE);
+    assertThat(reader.getInt("minInt", 0)).isEqualTo(Integer.MIN_VALUE);
+    assertThat(reader.getLong("long", 0)).isEqualTo(Long.MIN_VALUE);
+    assertThat(reader.getFloat("float", 0)).isEqualTo(1.5f);
+    assertThat(reader.getDouble("double", 0)).isEqualTo(-2.25);
+    assertThat(reader.getString("string")).isEqualTo("h\u00e9llo \u2603");
+    assertThat(reader.containsKey("null")).isFalse();
+    assertThat(Arrays.equals(reader.getByteArray("bytes"), new byte[] { 1, 2, 3 })).isTrue();
+  }
+
+  @Test public void missingAndMistypedKeysReadAsDefaults() {
+    CompactState.Encoder encoder = new CompactState.Encoder();
+    encoder.beginRecord("path").putString("key", "value");
+    encoder.endRecord();
+
+    StateReader reader = CompactState.decode(encoder.encode()).get("path");
+    assertThat(reader.getInt("key", 7)).isEqualTo(7);
+    assertThat(reader.getString("missing")).isNull();
+  }
+
+  @Test public void internsKeysAcrossRecords() {
+    CompactState.Encoder one = new CompactState.Encoder();
+    one.beginRecord("first").putInt("a rather long key", 1);
+    one.endRecord();
+    int single = one.encode().length;
+
+    CompactState.Encoder two = new CompactState.Encoder();
+    two.beginRecord("first").putInt("a rather long key", 1);
+    two.endRecord();
+    two.beginRecord("second").putInt("a rather long key", 2);
+    two.endRecord();
+    byte[] blob = two.encode();
+
+    // The second record costs its path and a few bytes, but not its key again.
+    assertThat(blob.length - single).isLessThan("second".length() + "a rather long key".length());
+    Map<String, StateReader> records = CompactState.decode(blob);
+    assertThat(records.get("first").getInt("a rather long key", 0)).isEqualTo(1);
+    assertThat(records.get("second").getInt("a rather long key", 0)).isEqualTo(2);
+  }
+
+  @Test(expected = IllegalStateException.class) public void cannotWriteOutsideRecord() {
+    CompactState.Encoder encoder = new CompactState.Encoder();
+    StateWriter writer = encoder.beginRecord("path");
+    encoder.endRecord();
+    writer.putInt("late", 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void rejectsForeignBytes() {
+    CompactState.decode(new byte[] { 1, 2, 3, 4, 5 });
+  }
+}
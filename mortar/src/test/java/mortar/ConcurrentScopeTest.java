@@ -0,0 +1,263 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class ConcurrentScopeTest {
+  private static final int THREADS = 8;
+  private static final int ITERATIONS = 2000;
+
+  private final AtomicInteger enters = new AtomicInteger();
+  private final AtomicInteger exits = new AtomicInteger();
+
+  private ExecutorService executor;
+  private MortarScope root;
+
+  @Before public void setUp() {
+    executor = Executors.newFixedThreadPool(THREADS + 1);
+    root = Mortar.createConcurrentRootScope(new Object());
+  }
+
+  @After public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test public void createFindAndDestroyFromManyThreads() throws Exception {
+    final MortarScope parent = root.createChild("parent", null);
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicBoolean done = new AtomicBoolean();
+
+    List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      workers.add(executor.submit(new Callable<Void>() {
+        @Override public Void call() throws Exception {
+          start.await();
+          for (int i = 0; i < ITERATIONS; i++) {
+            String name = "child-" + thread + "-" + i;
+            MortarScope child = parent.createChild(name, null);
+            child.register(new CountingScoped());
+            MortarScope grandchild = child.createChild("grandchild", null);
+            grandchild.register(new CountingScoped());
+
+            assertThat(parent.findChild(name)).isSameAs(child);
+            assertThat(root.findScope(grandchild.getPath())).isSameAs(grandchild);
+            // Some other thread's child, which may or may not be alive.
+            MortarScope other = parent.findChild("child-" + ((thread + 1) % THREADS) + "-" + i);
+            if (other != null) other.isDestroyed();
+
+            parent.destroyChild(child);
+            assertThat(grandchild.isDestroyed()).isTrue();
+            assertThat(parent.findChild(name)).isNull();
+            assertThat(root.findScope(grandchild.getPath())).isNull();
+          }
+          return null;
+        }
+      }));
+    }
+
+    // Meanwhile, keep walking the tree.
+    Future<?> reader = executor.submit(new Callable<Void>() {
+      @Override public Void call() throws Exception {
+        start.await();
+        while (!done.get()) {
+          for (MortarScope child : ((RealScope) parent).children.values()) {
+            child.isDestroyed();
+          }
+        }
+        return null;
+      }
+    });
+
+    start.countDown();
+    for (Future<?> worker : workers) worker.get(30, TimeUnit.SECONDS);
+    done.set(true);
+    reader.get(30, TimeUnit.SECONDS);
+
+    assertThat(((RealScope) parent).children).isEmpty();
+    assertThat(enters.get()).isEqualTo(2 * THREADS * ITERATIONS);
+    assertThat(exits.get()).isEqualTo(enters.get());
+  }
+
+  @Test public void registrantsOfScopesThatRaceTheirParentsDeathAllExit() throws Exception {
+    final MortarScope parent = root.createChild("parent", null);
+    final CountDownLatch start = new CountDownLatch(1);
+
+    List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      workers.add(executor.submit(new Callable<Void>() {
+        @Override public Void call() throws Exception {
+          start.await();
+          try {
+            for (int i = 0; i < ITERATIONS; i++) {
+              MortarScope child = parent.createChild("child-" + thread + "-" + i, null);
+              child.register(new CountingScoped());
+            }
+          } catch (IllegalStateException expected) {
+            // The parent was destroyed out from under us.
+          }
+          return null;
+        }
+      }));
+    }
+
+    start.countDown();
+    Thread.sleep(5);
+    root.destroyChild(parent);
+    for (Future<?> worker : workers) worker.get(30, TimeUnit.SECONDS);
+
+    assertThat(exits.get()).isEqualTo(enters.get());
+  }
+
+  @Test public void graphIsBuiltWithoutTheTreeLock() throws Exception {
+    final MortarScope lazy = root.createLazyChild("lazy", new ObjectGraphFactory() {
+      @Override public Object createObjectGraph() {
+        // Would deadlock if the builder held the lock.
+        try {
+          return executor.submit(new Callable<Object>() {
+            @Override public Object call() {
+              return root.createChild("made-while-building", "made");
+            }
+          }).get(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          throw new AssertionError(e);
+        }
+      }
+    });
+
+    MortarScope made = lazy.getObjectGraph();
+    assertThat(made).isSameAs(root.findChild("made-while-building"));
+    assertThat(lazy.<Object>getObjectGraph()).isSameAs(made);
+  }
+
+  @Test public void threadsThatRaceToBuildAGraphBuildItOnce() throws Exception {
+    final CountDownLatch building = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger builds = new AtomicInteger();
+    final MortarScope lazy = root.createLazyChild("lazy", new ObjectGraphFactory() {
+      @Override public Object createObjectGraph() {
+        builds.incrementAndGet();
+        building.countDown();
+        try {
+          assertThat(release.await(30, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+        return new Object();
+      }
+    });
+
+    List<Future<Object>> getters = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      getters.add(executor.submit(new Callable<Object>() {
+        @Override public Object call() {
+          return lazy.getObjectGraph();
+        }
+      }));
+    }
+    assertThat(building.await(30, TimeUnit.SECONDS)).isTrue();
+    release.countDown();
+
+    Object graph = lazy.getObjectGraph();
+    for (Future<Object> getter : getters) {
+      assertThat(getter.get(30, TimeUnit.SECONDS)).isSameAs(graph);
+    }
+    assertThat(builds.get()).isEqualTo(1);
+  }
+
+  @Test public void scopeDestroyedWhileBuildingItsGraphThrows() {
+    final AtomicBoolean built = new AtomicBoolean();
+    final MortarScope lazy = root.createLazyChild("lazy", new ObjectGraphFactory() {
+      @Override public Object createObjectGraph() {
+        root.destroyChild(root.findChild("lazy"));
+        built.set(true);
+        return new Object();
+      }
+    });
+
+    try {
+      lazy.getObjectGraph();
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+    assertThat(built.get()).isTrue();
+    assertThat(Mortar.getLazyGraphStats(root).getMaterialized()).isEqualTo(0);
+  }
+
+  @Test public void registrantThatIsEnteringWhenItsScopeDiesExitsAfterItEnters() throws Exception {
+    final MortarScope child = root.createChild("child", null);
+    final CountDownLatch entering = new CountDownLatch(1);
+    final CountDownLatch destroyed = new CountDownLatch(1);
+    final List<String> events = new ArrayList<>();
+
+    Future<?> registering = executor.submit(new Callable<Void>() {
+      @Override public Void call() throws Exception {
+        child.register(new Scoped() {
+          @Override public void onEnterScope(MortarScope scope) {
+            entering.countDown();
+            try {
+              // Would deadlock if the registrar held the lock.
+              assertThat(destroyed.await(30, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+            events.add("enter");
+          }
+
+          @Override public void onExitScope() {
+            events.add("exit");
+          }
+        });
+        return null;
+      }
+    });
+
+    assertThat(entering.await(30, TimeUnit.SECONDS)).isTrue();
+    root.destroyChild(child);
+    assertThat(events).isEmpty();
+    destroyed.countDown();
+    registering.get(30, TimeUnit.SECONDS);
+
+    assertThat(events).containsExactly("enter", "exit");
+  }
+
+  class CountingScoped implements Scoped {
+    @Override public void onEnterScope(MortarScope scope) {
+      enters.incrementAndGet();
+    }
+
+    @Override public void onExitScope() {
+      exits.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class HistogramTest {
+  private final Histogram histogram = new Histogram();
+
+  @Test public void emptyHistogramReportsZeros() {
+    assertThat(histogram.getCount()).isEqualTo(0);
+    assertThat(histogram.getMean()).isEqualTo(0);
+    assertThat(histogram.getMax()).isEqualTo(0);
+    assertThat(histogram.getPercentile(0.5)).isEqualTo(0);
+  }
+
+  @Test public void samplesFallIntoPowerOfTwoBuckets() {
+    histogram.record(0);
+    histogram.record(1);
+    histogram.record(2);
+    histogram.record(3);
+    histogram.record(4);
+    histogram.record(Long.MAX_VALUE);
+
+    long[] buckets = histogram.getBucketCounts();
+    assertThat(buckets[0]).isEqualTo(1);
+    assertThat(buckets[1]).isEqualTo(1);
+    assertThat(buckets[2]).isEqualTo(2);
+    assertThat(buckets[3]).isEqualTo(1);
+    assertThat(buckets[Histogram.BUCKETS - 1]).isEqualTo(1);
+    assertThat(Histogram.getBucketLimit(2)).isEqualTo(3);
+    assertThat(Histogram.getBucketLimit(Histogram.BUCKETS - 1)).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test public void percentilesAreBucketTopsCappedAtMax() {
+    for (int i = 1; i <= 90; i++) histogram.record(100);
+    for (int i = 1; i <= 10; i++) histogram.record(5000);
+
+    assertThat(histogram.getCount()).isEqualTo(100);
+    assertThat(histogram.getTotal()).isEqualTo(90 * 100 + 10 * 5000);
+    assertThat(histogram.getMean()).isEqualTo(590);
+    assertThat(histogram.getPercentile(0.5)).isEqualTo(127);
+    assertThat(histogram.getPercentile(0.9)).isEqualTo(127);
+    assertThat(histogram.getPercentile(0.91)).isEqualTo(5000);
+    assertThat(histogram.getPercentile(1)).isEqualTo(5000);
+  }
+
+  @Test public void negativeSamplesCountAsZero() {
+    histogram.record(-5);
+    assertThat(histogram.getBucketCounts()[0]).isEqualTo(1);
+    assertThat(histogram.getTotal()).isEqualTo(0);
+  }
+
+  @Test public void copyIsUnaffectedByLaterSamples() {
+    histogram.record(10);
+    Histogram copy = histogram.copy();
+    histogram.record(20);
+
+    assertThat(copy.getCount()).isEqualTo(1);
+    assertThat(copy.getMax()).isEqualTo(10);
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void percentileMustBeAFraction() {
+    histogram.getPercentile(50);
+  }
+}
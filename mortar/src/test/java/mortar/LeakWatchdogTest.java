@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public class LeakWatchdogTest {
+  static class View {
+    final MortarScope scope;
+
+    View(MortarScope scope) {
+      this.scope = scope;
+    }
+  }
+
+  static class ViewPresenter extends Presenter<View> {
+    @Override protected MortarScope extractScope(View view) {
+      return view.scope;
+    }
+
+    @Override public String toString() {
+      return "ViewPresenter";
+    }
+  }
+
+  /** Counts the collections a test says happened, and no others. */
+  static class FakeGcCounter implements LeakWatchdog.GcCounter {
+    int count;
+
+    @Override public int count() {
+      return count;
+    }
+  }
+
+  private final FakeGcCounter gcCounter = new FakeGcCounter();
+  private final List<Object> leaks = new ArrayList<>();
+  private final List<String> descriptions = new ArrayList<>();
+
+  private MortarScope root;
+  private LeakWatchdog watchdog;
+
+  @Before public void setUp() {
+    root = Mortar.createRootScope(new Object());
+    watchdog = new LeakWatchdog(2, new LeakWatchdog.Listener() {
+      @Override public void onLeakSuspected(Object leaked, String description, int gcs) {
+        leaks.add(leaked);
+        descriptions.add(description);
+      }
+    }, gcCounter);
+    ((RealScope) root).leakWatchdog = watchdog;
+  }
+
+  /** Has the watchdog notice a collection, whether or not the VM ran one. */
+  private void gcAndCheck() {
+    gcCounter.count++;
+    watchdog.check();
+  }
+
+  /** Asks for collections until the given reference is cleared, for up to ten seconds. */
+  private static void awaitCollected(WeakReference<?> reference) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (reference.get() != null) {
+      assertThat(System.currentTimeMillis()).isLessThan(deadline);
+      Runtime.getRuntime().gc();
+      Thread.sleep(10);
+    }
+  }
+
+  @Test public void reportsDestroyedScopeThatSurvivesEnoughGcs() {
+    MortarScope child = root.createChild("child", new Object());
+    root.destroyChild(child);
+
+    gcAndCheck();
+    assertThat(leaks).isEmpty();
+    gcAndCheck();
+    assertThat(leaks).containsExactly(child);
+    assertThat(descriptions).containsExactly("destroyed scope Root/child");
+
+    // Each leak is reported once.
+    gcAndCheck();
+    assertThat(leaks).hasSize(1);
+    assertThat(watchdog.getWatchedCount()).isEqualTo(0);
+  }
+
+  @Test public void collectedScopeIsNotReported() throws Exception {
+    awaitCollected(destroyChildAndForgetIt());
+    gcAndCheck();
+    gcAndCheck();
+
+    assertThat(leaks).isEmpty();
+    assertThat(watchdog.getWatchedCount()).isEqualTo(0);
+  }
+
+  private WeakReference<MortarScope> destroyChildAndForgetIt() {
+    MortarScope child = root.createChild("child", new Object());
+    root.destroyChild(child);
+    return new WeakReference<>(child);
+  }
+
+  @Test public void reportsDroppedViewThatSurvivesEnoughGcs() {
+    MortarActivityScope activityScope = Mortar.createActivityScope(root, "activity", new Object());
+    activityScope.onCreate(null);
+    ViewPresenter presenter = new ViewPresenter();
+    View view = new View(activityScope);
+    presenter.takeView(view);
+    presenter.dropView(view);
+
+    gcAndCheck();
+    gcAndCheck();
+    assertThat(leaks).containsExactly(view);
+    assertThat(descriptions).containsExactly("view dropped by ViewPresenter");
+  }
+
+  @Test public void viewTakenBackIsNotReported() {
+    MortarActivityScope activityScope = Mortar.createActivityScope(root, "activity", new Object());
+    activityScope.onCreate(null);
+    ViewPresenter presenter = new ViewPresenter();
+    View view = new View(activityScope);
+    presenter.takeView(view);
+    presenter.dropView(view);
+    presenter.takeView(view);
+
+    gcAndCheck();
+    gcAndCheck();
+    assertThat(leaks).isEmpty();
+  }
+
+  @Test public void sentinelCounterNoticesCollections() throws Exception {
+    LeakWatchdog.SentinelGcCounter counter = new LeakWatchdog.SentinelGcCounter();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (counter.count() == 0) {
+      assertThat(System.currentTimeMillis()).isLessThan(deadline);
+      Runtime.getRuntime().gc();
+      Thread.sleep(10);
+    }
+  }
+
+  @Test public void redundantEnableReturnsOriginal() {
+    assertThat(Mortar.enableLeakWatchdog(root, 5, new LeakWatchdog.Listener() {
+      @Override public void onLeakSuspected(Object leaked, String description, int gcs) {
+      }
+    })).isSameAs(watchdog);
+    assertThat(watchdog.getGcsBeforeReport()).isEqualTo(2);
+  }
+}
@@ -15,10 +15,16 @@
  */
 package mortar;
 
+import android.os.Bundle;
+import java.io.IOException;
+import java.io.StringWriter;
 import org.junit.Test;
 
 import static mortar.Mortar.createRootScope;
+import static mortar.MortarScopeDevHelper.scopeFootprintToString;
 import static mortar.MortarScopeDevHelper.scopeHierarchyToString;
+import static mortar.MortarScopeDevHelper.writeHierarchy;
+import static mortar.MortarScopeDevHelper.writeHierarchyJson;
 import static org.fest.assertions.api.Assertions.assertThat;
 
 public class MortarScopeDevHelperTest {
@@ -82,6 +88,124 @@ public class MortarScopeDevHelperTest {
     );
   }
 
+  @Test public void footprintHierarchyAnnotatesEachScope() {
+    MortarScope root = createRootScope(emptyObjectGraph());
+    MortarScope child = root.createChild("Child", new byte[1000]);
+    child.createChild("Grand Child", null);
+
+    String[] lines = scopeFootprintToString(child).split("\n");
+
+    assertThat(lines).hasSize(4);
+    assertThat(lines[0]).isEqualTo("Mortar Hierarchy:");
+    assertThat(lines[1]).isEqualTo(BLANK + "SCOPE Root (subtree 1024 B, own 8 B: graph 8 B, "
+        + "registrants 0 B, inflaters 0 B)");
+    assertThat(lines[2]).isEqualTo(BLANK + "`-SCOPE Child (subtree 1016 B, own 1016 B: "
+        + "graph 1016 B, registrants 0 B, inflaters 0 B)");
+    assertThat(lines[3]).isEqualTo(BLANK + "  `-SCOPE Grand Child (subtree 0 B, own 0 B: "
+        + "graph 0 B, registrants 0 B, inflaters 0 B)");
+  }
+
+  @Test public void deepHierarchyToString() {
+    MortarScope root = createRootScope(emptyObjectGraph());
+    MortarScope scope = root;
+    for (int i = 0; i < 70; i++) {
+      scope.createChild("Sibling", null);
+      scope = scope.createChild("Z" + i, null);
+    }
+
+    String[] lines = scopeHierarchyToString(root).split("\n");
+
+    // Every Z is its parent's last child, so nothing but the siblings hangs off its line.
+    StringBuilder prefix = new StringBuilder().append(BLANK);
+    for (int i = 0; i < 70; i++) {
+      assertThat(lines[2 + 2 * i]).isEqualTo(prefix + "+-SCOPE Sibling");
+      assertThat(lines[3 + 2 * i]).isEqualTo(prefix + "`-SCOPE Z" + i);
+      prefix.append("  ");
+    }
+  }
+
+  @Test public void writesHierarchyInCreationOrderWithDetails() throws IOException {
+    MortarScope root = createRootScope(emptyObjectGraph());
+    MortarActivityScope activity = Mortar.createActivityScope(root, "Zulu", emptyObjectGraph());
+    activity.onCreate(null);
+    activity.register(new KeyedBundler("first"));
+    activity.register(new KeyedBundler("second"));
+    root.createChild("Alpha", null).register(new Scoped() {
+      @Override public void onEnterScope(MortarScope scope) {
+      }
+
+      @Override public void onExitScope() {
+      }
+    });
+    activity.createChild("Inner", null);
+
+    StringWriter out = new StringWriter();
+    writeHierarchy(activity, out);
+
+    assertThat(out.toString()).isEqualTo("" //
+        + "Mortar Hierarchy:\n" //
+        + BLANK + "SCOPE Root (MortarScope, 0 scoped)\n" //
+        + BLANK + "+-SCOPE Zulu (MortarActivityScope, 2 scoped, bundlers [first, second])\n"
+        + BLANK + "| `-SCOPE Inner (MortarActivityScope, 0 scoped)\n" //
+        + BLANK + "`-SCOPE Alpha (MortarScope, 1 scoped)\n" //
+    );
+  }
+
+  @Test public void writesHierarchyAsJson() throws IOException {
+    MortarScope root = createRootScope(emptyObjectGraph());
+    MortarActivityScope activity = Mortar.createActivityScope(root, "A\"ctivity", null);
+    activity.onCreate(null);
+    activity.register(new KeyedBundler("key"));
+    root.createChild("Plain", null);
+
+    StringWriter out = new StringWriter();
+    writeHierarchyJson(root, out);
+
+    assertThat(out.toString()).isEqualTo(""
+        + "{\"name\":\"Root\",\"type\":\"MortarScope\",\"destroyed\":false,"
+        + "\"scopedCount\":0,\"bundlerKeys\":[],\"children\":["
+        + "{\"name\":\"A\\\"ctivity\",\"type\":\"MortarActivityScope\","
+        + "\"destroyed\":false,\"scopedCount\":1,\"bundlerKeys\":[\"key\"],"
+        + "\"children\":[]},"
+        + "{\"name\":\"Plain\",\"type\":\"MortarScope\",\"destroyed\":false,"
+        + "\"scopedCount\":0,\"bundlerKeys\":[],\"children\":[]}]}");
+  }
+
+  @Test public void writesDestroyedRoot() throws IOException {
+    MortarScope root = createRootScope(emptyObjectGraph());
+    Mortar.destroyRootScope(root);
+
+    StringWriter out = new StringWriter();
+    writeHierarchy(root, out);
+
+    assertThat(out.toString()).isEqualTo(
+        "Mortar Hierarchy:\n" + BLANK + "SCOPE Root (MortarScope, 0 scoped, destroyed)\n");
+  }
+
+  private static class KeyedBundler implements Bundler {
+    private final String key;
+
+    KeyedBundler(String key) {
+      this.key = key;
+    }
+
+    @Override public String getMortarBundleKey() {
+      return key;
+    }
+
+    @Override public void onEnterScope(MortarScope scope) {
+    }
+
+    @Override public void onLoad(Bundle savedInstanceState) {
+    }
+
+    @Override public void onSave(Bundle outState) {
+    }
+
+    @Override public void onExitScope() {
+    }
+  }
+
   private Object emptyObjectGraph() {
     return new Object();
   }
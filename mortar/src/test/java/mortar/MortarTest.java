@@ -18,14 +18,21 @@ package mortar;
 import android.content.Context;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
 
 import static mortar.Mortar.MORTAR_SCOPE_SERVICE;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.fest.assertions.api.Assertions.fail;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
 public class MortarTest {
   @Mock Context rawContext;
   @Mock Context goodContext;
@@ -51,4 +58,18 @@ public class MortarTest {
       assertThat(e.getMessage()).startsWith("Cannot find scope in android.content.Context");
     }
   }
+
+  @Test
+  public void testScopeContextAnswersDirectly() {
+    Context scopeContext = new MortarContextWrapper(rawContext, scope);
+    assertThat(Mortar.getScope(scopeContext)).isSameAs(scope);
+    verify(rawContext, never()).getSystemService(MORTAR_SCOPE_SERVICE);
+  }
+
+  @Test
+  public void testAsksOtherContextsEachTime() {
+    assertThat(Mortar.getScope(goodContext)).isSameAs(scope);
+    assertThat(Mortar.getScope(goodContext)).isSameAs(scope);
+    verify(goodContext, times(2)).getSystemService(MORTAR_SCOPE_SERVICE);
+  }
 }
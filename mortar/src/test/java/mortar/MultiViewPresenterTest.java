@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+// Robolectric allows us to use Bundles.
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public class MultiViewPresenterTest {
+  static class PaneView {
+    final MortarScope scope;
+    final List<String> shown = new ArrayList<>();
+
+    PaneView(MortarScope scope) {
+      this.scope = scope;
+    }
+  }
+
+  static class PanesPresenter extends MultiViewPresenter<PaneView> {
+    final List<String> items = new ArrayList<>();
+    final List<String> calls = new ArrayList<>();
+    int loads;
+    int entered;
+
+    @Override protected MortarScope extractScope(PaneView view) {
+      return view.scope;
+    }
+
+    @Override protected void onEnterScope(MortarScope scope) {
+      entered++;
+    }
+
+    @Override protected void onLoad(Bundle savedInstanceState) {
+      loads++;
+      if (savedInstanceState != null) items.addAll(savedInstanceState.getStringArrayList("items"));
+    }
+
+    @Override protected void onTakeView(PaneView view) {
+      calls.add("take " + getViews().indexOf(view));
+      view.shown.addAll(items);
+    }
+
+    @Override protected void onDropView(PaneView view) {
+      calls.add("drop");
+    }
+
+    @Override protected void onSave(Bundle outState) {
+      outState.putStringArrayList("items", new ArrayList<>(items));
+    }
+
+    void add(final String item) {
+      items.add(item);
+      updateViews(new ViewUpdate<PaneView>() {
+        @Override public void apply(PaneView view) {
+          view.shown.add(item);
+        }
+      });
+    }
+  }
+
+  MortarScope root;
+  MortarActivityScope scope;
+  PanesPresenter presenter;
+
+  @Before public void setUp() {
+    root = Mortar.createRootScope(false);
+    scope = Mortar.createActivityScope(root, "activity", null);
+    scope.onCreate(null);
+    presenter = new PanesPresenter();
+  }
+
+  @Test public void loadsOnceForAllViews() {
+    PaneView left = new PaneView(scope);
+    PaneView right = new PaneView(scope);
+
+    presenter.takeView(left);
+    presenter.takeView(right);
+    presenter.takeView(left);
+
+    assertThat(presenter.loads).isEqualTo(1);
+    assertThat(presenter.entered).isEqualTo(1);
+    assertThat(presenter.calls).containsExactly("take 0", "take 1");
+  }
+
+  @Test public void updatesFanOutToEveryView() {
+    PaneView left = new PaneView(scope);
+    presenter.takeView(left);
+    presenter.add("one");
+    PaneView right = new PaneView(scope);
+    presenter.takeView(right);
+    presenter.add("two");
+
+    assertThat(left.shown).containsExactly("one", "two");
+    assertThat(right.shown).containsExactly("one", "two");
+  }
+
+  @Test public void droppedViewsAreNotUpdated() {
+    PaneView left = new PaneView(scope);
+    PaneView right = new PaneView(scope);
+    presenter.takeView(left);
+    presenter.takeView(right);
+
+    presenter.dropView(left);
+    presenter.dropView(left);
+    presenter.add("one");
+
+    assertThat(left.shown).isEmpty();
+    assertThat(right.shown).containsExactly("one");
+    assertThat(presenter.calls).containsExactly("take 0", "take 1", "drop");
+  }
+
+  @Test public void reloadsOnceAllViewsAreDropped() {
+    PaneView left = new PaneView(scope);
+    PaneView right = new PaneView(scope);
+    presenter.takeView(left);
+    presenter.takeView(right);
+    presenter.dropView(left);
+    presenter.takeView(left);
+    assertThat(presenter.loads).isEqualTo(1);
+
+    presenter.dropView(left);
+    presenter.dropView(right);
+    presenter.takeView(right);
+    assertThat(presenter.loads).isEqualTo(2);
+  }
+
+  @Test public void viewsInAnotherScopeAreRejected() {
+    presenter.takeView(new PaneView(scope));
+    MortarActivityScope other = Mortar.createActivityScope(root, "other", null);
+    try {
+      presenter.takeView(new PaneView(other));
+      fail("Expected exception");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("Root/other").contains("Root/activity");
+    }
+    assertThat(presenter.getViews()).hasSize(1);
+  }
+
+  @Test public void newScopeOnceAllViewsAreDroppedRestoresState() {
+    PaneView left = new PaneView(scope);
+    presenter.takeView(left);
+    presenter.add("one");
+    Bundle saved = new Bundle();
+    scope.onSaveInstanceState(saved);
+    presenter.dropView(left);
+    root.destroyChild(scope);
+
+    presenter.items.clear();
+    MortarActivityScope recreated = Mortar.createActivityScope(root, "activity", null);
+    recreated.onCreate(saved);
+    PaneView next = new PaneView(recreated);
+    presenter.takeView(next);
+
+    assertThat(next.shown).containsExactly("one");
+  }
+}
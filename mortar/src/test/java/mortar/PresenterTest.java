@@ -16,6 +16,17 @@
 package mortar;
 
 import android.os.Bundle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -141,6 +152,37 @@ import static org.fest.assertions.api.Assertions.assertThat;
     }
   }
 
+  class CleanPresenter extends ChildPresenter {
+    int saves;
+
+    CleanPresenter() {
+      super("clean");
+    }
+
+    @Override protected void onSave(Bundle savedInstanceState) {
+      super.onSave(savedInstanceState);
+      saves++;
+    }
+
+    @Override protected boolean isDirty() {
+      return false;
+    }
+  }
+
+  @Test public void cleanPresenterSavesOnceAndKeepsItsBundle() {
+    scope.onCreate(null);
+    CleanPresenter presenter = new CleanPresenter();
+    presenter.takeView(new SomeView());
+
+    scope.onSaveInstanceState(new Bundle());
+    Bundle bundle = new Bundle();
+    scope.onSaveInstanceState(bundle);
+
+    assertThat(presenter.saves).isEqualTo(1);
+    assertThat(bundle.getBundle(presenter.getMortarBundleKey()).getString("key")).isEqualTo(
+        "clean");
+  }
+
   /** https://github.com/square/mortar/issues/59 */
   @Test public void onLoadOnlyOncePerView() {
     SimplePresenter presenter = new SimplePresenter();
@@ -224,4 +266,350 @@ import static org.fest.assertions.api.Assertions.assertThat;
 
     assertThat(presenter.destroyed).isSameAs(scope);
   }
+
+  static class ItemsView extends SomeView {
+    final List<String> items = new ArrayList<>();
+    int layouts;
+  }
+
+  class BurstyPresenter extends Presenter<ItemsView> {
+    final List<String> arrived = new ArrayList<>();
+    final ViewUpdate<ItemsView> showArrived = new ViewUpdate<ItemsView>() {
+      @Override public void apply(ItemsView view) {
+        view.items.addAll(arrived);
+        view.layouts++;
+        arrived.clear();
+      }
+    };
+
+    @Override protected MortarScope extractScope(ItemsView view) {
+      return scope;
+    }
+
+    void receive(String item) {
+      arrived.add(item);
+      updateView(showArrived);
+    }
+
+    void update(ViewUpdate<? super ItemsView> update) {
+      updateView(update);
+    }
+  }
+
+  @Test public void burstOfUpdatesIsAppliedOncePerFrame() {
+    scope.onCreate(null);
+    ManualFrameClock clock = new ManualFrameClock();
+    BurstyPresenter presenter = new BurstyPresenter();
+    presenter.setFrameClock(clock);
+    ItemsView view = new ItemsView();
+    presenter.takeView(view);
+
+    for (int i = 0; i < 100; i++) presenter.receive("item" + i);
+    assertThat(view.items).isEmpty();
+    assertThat(clock.getPendingCount()).isEqualTo(1);
+
+    clock.advanceFrame();
+    assertThat(view.items).hasSize(100);
+    assertThat(view.layouts).isEqualTo(1);
+    assertThat(clock.getPendingCount()).isEqualTo(0);
+
+    presenter.receive("late");
+    clock.advanceFrame();
+    assertThat(view.items).hasSize(101);
+    assertThat(view.layouts).isEqualTo(2);
+  }
+
+  @Test public void updatesApplyInOrderAndWaitForAView() {
+    scope.onCreate(null);
+    ManualFrameClock clock = new ManualFrameClock();
+    final BurstyPresenter presenter = new BurstyPresenter();
+    presenter.setFrameClock(clock);
+    presenter.update(new ViewUpdate<SomeView>() {
+      @Override public void apply(SomeView view) {
+        ((ItemsView) view).items.add("first");
+      }
+    });
+    presenter.receive("second");
+    assertThat(clock.getPendingCount()).isEqualTo(0);
+
+    ItemsView view = new ItemsView();
+    presenter.takeView(view);
+    clock.advanceFrame();
+    assertThat(view.items).containsExactly("first", "second");
+  }
+
+  @Test public void exitingTheScopeDropsQueuedUpdates() {
+    scope.onCreate(null);
+    ManualFrameClock clock = new ManualFrameClock();
+    BurstyPresenter presenter = new BurstyPresenter();
+    presenter.setFrameClock(clock);
+    ItemsView view = new ItemsView();
+    presenter.takeView(view);
+    presenter.receive("late");
+    assertThat(clock.getPendingCount()).isEqualTo(1);
+
+    root.destroyChild(scope);
+    assertThat(clock.getPendingCount()).isEqualTo(0);
+
+    clock.advanceFrame();
+    assertThat(view.items).isEmpty();
+    assertThat(view.layouts).isEqualTo(0);
+  }
+
+  @Test public void droppingTheViewHoldsBackTheRest() {
+    scope.onCreate(null);
+    ManualFrameClock clock = new ManualFrameClock();
+    final BurstyPresenter presenter = new BurstyPresenter();
+    presenter.setFrameClock(clock);
+    final ItemsView first = new ItemsView();
+    presenter.takeView(first);
+    presenter.update(new ViewUpdate<ItemsView>() {
+      @Override public void apply(ItemsView view) {
+        presenter.dropView(view);
+      }
+    });
+    presenter.receive("held");
+    clock.advanceFrame();
+    assertThat(first.items).isEmpty();
+
+    presenter.takeView(first);
+    presenter.dropView(first);
+    assertThat(clock.getPendingCount()).isEqualTo(0);
+
+    ItemsView second = new ItemsView();
+    presenter.takeView(second);
+    clock.advanceFrame();
+    assertThat(second.items).containsExactly("held");
+  }
+
+  /** Runs what it is given when told to. */
+  static class QueueExecutor implements Executor {
+    final Deque<Runnable> queue = new ArrayDeque<>();
+
+    @Override public void execute(Runnable command) {
+      queue.add(command);
+    }
+
+    void runAll() {
+      Runnable next;
+      while ((next = queue.poll()) != null) next.run();
+    }
+  }
+
+  static final Executor DIRECT = new Executor() {
+    @Override public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  class WorkingPresenter extends Presenter<SomeView> {
+    final List<String> delivered = new ArrayList<>();
+
+    @Override protected MortarScope extractScope(SomeView view) {
+      return scope;
+    }
+
+    <T> Future<T> work(Callable<T> work) {
+      return submit(work, new TaskCallback<SomeView, T>() {
+        @Override public void onSuccess(SomeView view, T result) {
+          delivered.add("success " + result);
+        }
+
+        @Override public void onFailure(SomeView view, Throwable error) {
+          delivered.add("failure " + error.getMessage());
+        }
+      });
+    }
+  }
+
+  static Callable<String> returning(final String result) {
+    return new Callable<String>() {
+      @Override public String call() {
+        return result;
+      }
+    };
+  }
+
+  @Test public void submittedWorkDeliversToTheViewOnTheMainThread() {
+    scope.onCreate(null);
+    QueueExecutor background = new QueueExecutor();
+    QueueExecutor main = new QueueExecutor();
+    WorkingPresenter presenter = new WorkingPresenter();
+    presenter.setTaskExecutors(background, main);
+    presenter.takeView(new SomeView());
+
+    presenter.work(returning("done"));
+    presenter.work(new Callable<String>() {
+      @Override public String call() {
+        throw new IllegalStateException("broken");
+      }
+    });
+    background.runAll();
+    assertThat(presenter.delivered).isEmpty();
+
+    main.runAll();
+    assertThat(presenter.delivered).containsExactly("success done", "failure broken");
+  }
+
+  @Test public void droppingTheViewCancelsItsWork() {
+    scope.onCreate(null);
+    QueueExecutor background = new QueueExecutor();
+    QueueExecutor main = new QueueExecutor();
+    WorkingPresenter presenter = new WorkingPresenter();
+    presenter.setTaskExecutors(background, main);
+    SomeView view = new SomeView();
+    presenter.takeView(view);
+
+    // Done, but its result still waits for the main thread.
+    presenter.work(returning("never delivered"));
+    background.runAll();
+    Future<String> notStarted = presenter.work(returning("never run"));
+    presenter.dropView(view);
+    presenter.takeView(new SomeView());
+    background.runAll();
+    main.runAll();
+
+    assertThat(notStarted.isCancelled()).isTrue();
+    assertThat(presenter.delivered).isEmpty();
+  }
+
+  @Test public void exitingTheScopeCancelsWork() {
+    scope.onCreate(null);
+    QueueExecutor background = new QueueExecutor();
+    WorkingPresenter presenter = new WorkingPresenter();
+    presenter.setTaskExecutors(background, DIRECT);
+    presenter.takeView(new SomeView());
+
+    Future<String> work = presenter.work(returning("never run"));
+    root.destroyChild(scope);
+    background.runAll();
+
+    assertThat(work.isCancelled()).isTrue();
+    assertThat(presenter.delivered).isEmpty();
+  }
+
+  @Test public void cancelledWorkIsInterrupted() throws Exception {
+    scope.onCreate(null);
+    ExecutorService background = Executors.newSingleThreadExecutor();
+    try {
+      WorkingPresenter presenter = new WorkingPresenter();
+      presenter.setTaskExecutors(background, DIRECT);
+      SomeView view = new SomeView();
+      presenter.takeView(view);
+
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch interrupted = new CountDownLatch(1);
+      presenter.work(new Callable<String>() {
+        @Override public String call() {
+          started.countDown();
+          try {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+          }
+          return "late";
+        }
+      });
+      assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      presenter.dropView(view);
+
+      assertThat(interrupted.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(presenter.delivered).isEmpty();
+    } finally {
+      background.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class) public void cannotSubmitWithoutAView() {
+    WorkingPresenter presenter = new WorkingPresenter();
+    presenter.setTaskExecutors(DIRECT, DIRECT);
+    presenter.work(returning("nowhere"));
+  }
+
+  static class EventLog implements PresenterEventListener {
+    final List<PresenterEvent> events = new ArrayList<PresenterEvent>();
+
+    @Override public void onPresenterEvent(PresenterEvent event) {
+      events.add(event);
+    }
+  }
+
+  static class Work implements Pausable {
+    final List<String> calls = new ArrayList<String>();
+
+    @Override public void resume() {
+      calls.add("resume");
+    }
+
+    @Override public void pause() {
+      calls.add("pause");
+    }
+  }
+
+  @Test public void eventsFollowTheLifecycle() {
+    SimplePresenter presenter = new SimplePresenter();
+    EventLog log = new EventLog();
+    presenter.addEventListener(log);
+    SomeView view = new SomeView();
+
+    presenter.takeView(view);
+    presenter.dropView(view);
+    presenter.takeView(view);
+    root.destroyChild(scope);
+
+    assertThat(log.events).containsExactly(PresenterEvent.TAKE_VIEW, PresenterEvent.LOAD,
+        PresenterEvent.DROP_VIEW, PresenterEvent.TAKE_VIEW, PresenterEvent.LOAD,
+        PresenterEvent.EXIT_SCOPE);
+  }
+
+  @Test public void lateListenersHearWhatTheyMissed() {
+    SimplePresenter presenter = new SimplePresenter();
+    presenter.takeView(new SomeView());
+    EventLog log = new EventLog();
+
+    presenter.addEventListener(log);
+
+    assertThat(log.events).containsExactly(PresenterEvent.TAKE_VIEW, PresenterEvent.LOAD);
+  }
+
+  @Test public void removedListenersHearNothing() {
+    SimplePresenter presenter = new SimplePresenter();
+    EventLog log = new EventLog();
+    presenter.addEventListener(log);
+    presenter.removeEventListener(log);
+    presenter.removeEventListener(log);
+
+    presenter.takeView(new SomeView());
+
+    assertThat(log.events).isEmpty();
+  }
+
+  @Test public void boundWorkPausesWithoutAViewAndResumes() {
+    SimplePresenter presenter = new SimplePresenter();
+    Work work = new Work();
+    presenter.bindToView(work);
+    assertThat(work.calls).isEmpty();
+
+    SomeView view = new SomeView();
+    presenter.takeView(view);
+    presenter.dropView(view);
+    presenter.dropView(view);
+    presenter.takeView(view);
+    root.destroyChild(scope);
+
+    assertThat(work.calls).containsExactly("resume", "pause", "resume", "pause");
+  }
+
+  @Test public void workBoundToALoadedViewResumesRightAway() {
+    SimplePresenter presenter = new SimplePresenter();
+    presenter.takeView(new SomeView());
+    Work work = new Work();
+
+    PresenterEventListener binding = presenter.bindToView(work);
+    assertThat(work.calls).containsExactly("resume");
+
+    presenter.removeEventListener(binding);
+    root.destroyChild(scope);
+    assertThat(work.calls).containsExactly("resume");
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import org.junit.Test;
+
+import static mortar.Mortar.createRootScope;
+import static mortar.Mortar.measureFootprint;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class ScopeFootprintTest {
+  /** Stands in for an object graph, holding on to whatever it is given. */
+  static class Graph {
+    final Object parent;
+    final byte[] payload;
+
+    Graph(Object parent, int size) {
+      this.parent = parent;
+      this.payload = new byte[size];
+    }
+  }
+
+  static class Holder implements Scoped {
+    final Object held;
+
+    Holder(Object held) {
+      this.held = held;
+    }
+
+    @Override public void onEnterScope(MortarScope scope) {
+    }
+
+    @Override public void onExitScope() {
+    }
+  }
+
+  @Test public void chargesGraphAndRegistrantsToTheirScope() {
+    MortarScope root = createRootScope(new Graph(null, 0));
+    MortarScope child = root.createChild("child", new Graph(null, 10000));
+    child.register(new Holder(new byte[2000]));
+
+    ScopeFootprint footprint = measureFootprint(child);
+    assertThat(footprint.getPath()).isEqualTo("Root/child");
+    assertThat(footprint.getGraphBytes()).isGreaterThanOrEqualTo(10000).isLessThan(10100);
+    assertThat(footprint.getRegistrantBytes()).isGreaterThanOrEqualTo(2000).isLessThan(2100);
+    assertThat(footprint.getInflaterBytes()).isEqualTo(0);
+    assertThat(footprint.getOwnBytes()).isEqualTo(
+        footprint.getGraphBytes() + footprint.getRegistrantBytes());
+  }
+
+  @Test public void doesNotChargeWhatAncestorsAlsoReach() {
+    Graph rootGraph = new Graph(null, 50000);
+    MortarScope root = createRootScope(rootGraph);
+    MortarScope child = root.createChild("child", new Graph(rootGraph, 100));
+    child.register(new Holder(rootGraph));
+
+    ScopeFootprint footprint = measureFootprint(child);
+    assertThat(footprint.getGraphBytes()).isLessThan(200);
+    assertThat(footprint.getRegistrantBytes()).isLessThan(100);
+  }
+
+  @Test public void chargesSharedObjectsOnce() {
+    byte[] shared = new byte[5000];
+    MortarScope root = createRootScope(new Graph(null, 0));
+    MortarScope parent = root.createChild("parent", null);
+    MortarScope first = parent.createChild("first", null);
+    MortarScope second = parent.createChild("second", null);
+    first.register(new Holder(shared));
+    second.register(new Holder(shared));
+
+    ScopeFootprint footprint = measureFootprint(parent);
+    ScopeFootprint firstFootprint = footprint.getChildren().get(0);
+    ScopeFootprint secondFootprint = footprint.getChildren().get(1);
+    assertThat(firstFootprint.getName()).isEqualTo("first");
+    assertThat(firstFootprint.getRegistrantBytes()).isGreaterThanOrEqualTo(5000);
+    assertThat(secondFootprint.getRegistrantBytes()).isLessThan(100);
+    assertThat(footprint.getSubtreeBytes()).isEqualTo(footprint.getOwnBytes()
+        + firstFootprint.getSubtreeBytes() + secondFootprint.getSubtreeBytes());
+  }
+
+  @Test public void lazyGraphIsNotBuiltToMeasureIt() {
+    MortarScope root = createRootScope(new Graph(null, 0));
+    MortarScope lazy = root.createLazyChild("lazy", new ObjectGraphFactory() {
+      @Override public Object createObjectGraph() {
+        throw new AssertionError("Should not be built");
+      }
+    });
+
+    assertThat(measureFootprint(lazy).getGraphBytes()).isGreaterThan(0);
+  }
+
+  @Test public void measuresVeryDeepTree() {
+    MortarScope root = createRootScope(new Graph(null, 0));
+    MortarScope scope = root;
+    for (int i = 0; i < 100000; i++) {
+      scope = scope.createChild("deep" + i, new Graph(null, 10));
+    }
+
+    ScopeFootprint footprint = measureFootprint(root);
+    assertThat(footprint.getSubtreeBytes()).isGreaterThan(100000 * 10);
+    int depth = 0;
+    while (!footprint.getChildren().isEmpty()) {
+      footprint = footprint.getChildren().get(0);
+      depth++;
+    }
+    assertThat(depth).isEqualTo(100000);
+    assertThat(footprint.getPath()).isEqualTo(scope.getPath());
+  }
+
+  @Test public void cannotMeasureDestroyedScope() {
+    MortarScope root = createRootScope(new Graph(null, 0));
+    MortarScope child = root.createChild("child", null);
+    root.destroyChild(child);
+    try {
+      measureFootprint(child);
+      fail("Expected exception");
+    } catch (IllegalStateException expected) {
+    }
+  }
+}
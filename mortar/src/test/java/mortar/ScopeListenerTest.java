@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+// Robolectric allows us to use Bundles.
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public class ScopeListenerTest {
+  /** Writes each event as a line, and checks that time only moves forward. */
+  static class RecordingListener implements ScopeListener {
+    final List<String> events = new ArrayList<>();
+    long lastNanos = Long.MIN_VALUE;
+
+    @Override public void onScopeCreated(MortarScope scope, long timeNanos) {
+      record(timeNanos, timeNanos, "created " + scope.getPath());
+    }
+
+    @Override public void onScopeDestroyed(MortarScope scope, long timeNanos) {
+      assertThat(scope.isDestroyed()).isTrue();
+      record(timeNanos, timeNanos, "destroyed " + scope.getPath());
+    }
+
+    @Override public void onRegistered(MortarScope scope, Scoped scoped, long timeNanos) {
+      record(timeNanos, timeNanos, "registered " + scope.getPath() + " " + scoped);
+    }
+
+    @Override public void onLoaded(MortarScope scope, Scoped bundler, Bundle state,
+        long startNanos, long endNanos) {
+      record(startNanos, endNanos, "loaded " + scope.getPath() + " " + bundler + " " + state);
+    }
+
+    @Override public void onSaved(MortarScope scope, Scoped bundler, Bundle state,
+        long startNanos, long endNanos) {
+      record(startNanos, endNanos, "saved " + scope.getPath() + " " + bundler + " "
+          + (state == null ? null : state.getString("value")));
+    }
+
+    private void record(long startNanos, long endNanos, String event) {
+      assertThat(startNanos).isGreaterThanOrEqualTo(lastNanos);
+      assertThat(endNanos).isGreaterThanOrEqualTo(startNanos);
+      lastNanos = endNanos;
+      events.add(event);
+    }
+  }
+
+  static class NamedScoped implements Scoped {
+    final String name;
+
+    NamedScoped(String name) {
+      this.name = name;
+    }
+
+    @Override public void onEnterScope(MortarScope scope) {
+    }
+
+    @Override public void onExitScope() {
+    }
+
+    @Override public String toString() {
+      return name;
+    }
+  }
+
+  static class NamedBundler extends NamedScoped implements Bundler {
+    NamedBundler(String name) {
+      super(name);
+    }
+
+    @Override public String getMortarBundleKey() {
+      return name;
+    }
+
+    @Override public void onLoad(Bundle savedInstanceState) {
+    }
+
+    @Override public void onSave(Bundle outState) {
+      outState.putString("value", name);
+    }
+  }
+
+  private final RecordingListener listener = new RecordingListener();
+  private MortarScope root;
+
+  @Before public void setUp() {
+    root = Mortar.createRootScope(new Object());
+  }
+
+  @Test public void registrantThatDestroysItsScopeOnEnterIsNotReported() {
+    Mortar.addScopeListener(root, listener);
+    final MortarScope child = root.createChild("child", new Object());
+    final List<String> calls = new ArrayList<>();
+    child.register(new NamedScoped("destroyer") {
+      @Override public void onEnterScope(MortarScope scope) {
+        calls.add("enter");
+        root.destroyChild(child);
+      }
+
+      @Override public void onExitScope() {
+        calls.add("exit");
+      }
+    });
+
+    assertThat(calls).containsExactly("enter", "exit");
+    assertThat(listener.events).containsExactly("created Root/child", "destroyed Root/child");
+  }
+
+  @Test public void reportsScopeLifecycle() {
+    Mortar.addScopeListener(root, listener);
+    MortarScope child = root.createChild("child", new Object());
+    child.register(new NamedScoped("first"));
+    child.register(new NamedScoped("first-again"));
+    MortarScope grandchild = child.createLazyChild("grandchild", new ObjectGraphFactory() {
+      @Override public Object createObjectGraph() {
+        return new Object();
+      }
+    });
+    root.destroyChild(child);
+
+    assertThat(listener.events).containsExactly(
+        "created Root/child",
+        "registered Root/child first",
+        "registered Root/child first-again",
+        "created Root/child/grandchild",
+        "destroyed Root/child/grandchild",
+        "destroyed Root/child");
+    assertThat(grandchild.isDestroyed()).isTrue();
+  }
+
+  @Test public void redundantRegistrationIsNotReported() {
+    Mortar.addScopeListener(root, listener);
+    Scoped scoped = new NamedScoped("once");
+    root.register(scoped);
+    root.register(scoped);
+
+    assertThat(listener.events).containsExactly("registered Root once");
+  }
+
+  @Test public void reportsActivityScopeOnceInItsFinalForm() {
+    final List<MortarScope> created = new ArrayList<>();
+    Mortar.addScopeListener(root, new RecordingListener() {
+      @Override public void onScopeCreated(MortarScope scope, long timeNanos) {
+        created.add(scope);
+      }
+    });
+    MortarActivityScope activityScope = Mortar.createActivityScope(root, "activity", new Object());
+    activityScope.onCreate(null);
+    MortarScope child = activityScope.createChild("child", new Object());
+
+    assertThat(created).containsExactly(activityScope, child);
+    assertThat(child).isInstanceOf(MortarActivityScope.class);
+  }
+
+  @Test public void reportsLoadsAndSaves() {
+    MortarActivityScope activityScope = Mortar.createActivityScope(root, "activity", new Object());
+    Mortar.addScopeListener(root, listener);
+    activityScope.onCreate(null);
+    activityScope.register(new NamedBundler("bundler"));
+    MortarScope child = activityScope.createChild("child", new Object());
+    child.register(new NamedBundler("inner"));
+
+    Bundle outState = new Bundle();
+    activityScope.onSaveInstanceState(outState);
+
+    assertThat(listener.events).containsExactly(
+        "registered Root/activity bundler",
+        "loaded Root/activity bundler null",
+        "created Root/activity/child",
+        "registered Root/activity/child inner",
+        "loaded Root/activity/child inner null",
+        "saved Root/activity bundler bundler",
+        "saved Root/activity/child inner inner");
+  }
+
+  @Test public void removedListenerHearsNothingMore() {
+    RecordingListener other = new RecordingListener();
+    Mortar.addScopeListener(root, listener);
+    Mortar.addScopeListener(root, other);
+    root.createChild("heard", new Object());
+    Mortar.removeScopeListener(root, listener);
+    Mortar.removeScopeListener(root, listener);
+    root.createChild("unheard", new Object());
+
+    assertThat(listener.events).containsExactly("created Root/heard");
+    assertThat(other.events).containsExactly("created Root/heard", "created Root/unheard");
+  }
+
+  @Test public void onlyRootTakesListeners() {
+    MortarScope child = root.createChild("child", new Object());
+    try {
+      Mortar.addScopeListener(child, listener);
+      fail("Expected exception");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).isEqualTo("child is not a root");
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static mortar.MortarScopeDevHelper.snapshotTree;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+// Robolectric allows us to use Bundles.
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public class ScopeTreeSnapshotTest {
+  private static final char BLANK = '\u00a0';
+
+  /** Saves the given number of entries. */
+  static class SizedBundler implements Bundler {
+    final String key;
+    final int entries;
+
+    SizedBundler(String key, int entries) {
+      this.key = key;
+      this.entries = entries;
+    }
+
+    @Override public String getMortarBundleKey() {
+      return key;
+    }
+
+    @Override public void onEnterScope(MortarScope scope) {
+    }
+
+    @Override public void onLoad(Bundle savedInstanceState) {
+    }
+
+    @Override public void onSave(Bundle outState) {
+      for (int i = 0; i < entries; i++) outState.putInt("entry" + i, i);
+    }
+
+    @Override public void onExitScope() {
+    }
+  }
+
+  /** Builds the scopes of an activity showing one screen, as an app would on each create. */
+  private MortarActivityScope createActivity(Bundle savedState, int screenEntries,
+      boolean withScreen) {
+    MortarScope root = Mortar.createRootScope(new Object());
+    MortarActivityScope activityScope = Mortar.createActivityScope(root, "activity", new Object());
+    activityScope.onCreate(savedState);
+    activityScope.register(new SizedBundler("toolbar", 1));
+    activityScope.register(new SizedBundler("drawer", 2));
+    if (withScreen) {
+      MortarScope screen = activityScope.createChild("screen", new Object());
+      screen.register(new SizedBundler("list", screenEntries));
+    }
+    return activityScope;
+  }
+
+  @Test public void restoredTreeMatchesSavedOne() {
+    MortarActivityScope before = createActivity(null, 3, true);
+    Bundle savedState = new Bundle();
+    before.onSaveInstanceState(savedState);
+    ScopeTreeSnapshot saved = snapshotTree(before);
+
+    MortarActivityScope after = createActivity(savedState, 3, true);
+    ScopeTreeSnapshot restored = snapshotTree(after);
+
+    assertThat(saved.diff(restored)).isEmpty();
+    assertThat(restored).isEqualTo(saved);
+    assertThat(restored.getChildren().get(0).getBundleSizes().get("list")).isEqualTo(3);
+  }
+
+  @Test public void reportsEachDifference() {
+    MortarActivityScope before = createActivity(null, 3, true);
+    before.createChild("dialog", new Object());
+    Bundle savedState = new Bundle();
+    before.onSaveInstanceState(savedState);
+    ScopeTreeSnapshot saved = snapshotTree(before);
+
+    MortarActivityScope after = createActivity(savedState, 3, false);
+    after.register(new SizedBundler("extra", 0));
+    after.createChild("screen", new Object()).register(new SizedBundler("list", 5));
+    after.createChild("popup", new Object());
+    after.onSaveInstanceState(new Bundle());
+
+    assertThat(saved.diff(snapshotTree(after))).containsExactly(
+        "activity: gained bundler extra",
+        "activity/screen: bundle of list had 3 entries, now 5",
+        "activity/dialog: missing",
+        "activity/popup: added");
+  }
+
+  @Test public void equalityMindsOrderButDiffDoesNot() {
+    MortarScope first = Mortar.createRootScope(new Object());
+    first.createChild("a", new Object());
+    first.createChild("b", new Object());
+    MortarScope second = Mortar.createRootScope(new Object());
+    second.createChild("b", new Object());
+    second.createChild("a", new Object());
+
+    assertThat(snapshotTree(first).diff(snapshotTree(second))).isEmpty();
+    assertThat(snapshotTree(first)).isNotEqualTo(snapshotTree(second));
+  }
+
+  @Test public void comparesVeryDeepTrees() {
+    ScopeTreeSnapshot left = snapshotTree(createChain("left"));
+    ScopeTreeSnapshot right = snapshotTree(createChain("right"));
+
+    // Compared as booleans, as assertions would print the snapshots.
+    assertThat(left.equals(snapshotTree(createChain("left")))).isTrue();
+    assertThat(left.equals(right)).isFalse();
+    List<String> differences = left.diff(right);
+    assertThat(differences).hasSize(2);
+    assertThat(differences.get(0)).startsWith("Root/deep0/deep1/").endsWith("/left: missing");
+    assertThat(differences.get(1)).endsWith("/deep99999/right: added");
+  }
+
+  /** Returns a root whose only chain of descendants is very deep and ends with the given name. */
+  private static MortarScope createChain(String lastName) {
+    MortarScope root = Mortar.createRootScope(new Object());
+    MortarScope scope = root;
+    for (int i = 0; i < 100000; i++) {
+      scope = scope.createChild("deep" + i, null);
+    }
+    scope.createChild(lastName, null);
+    return root;
+  }
+
+  @Test public void unsavedBundlersHaveNoSize() {
+    MortarActivityScope activityScope = createActivity(null, 3, false);
+    ScopeTreeSnapshot snapshot = snapshotTree(activityScope);
+
+    assertThat(snapshot.getType()).isEqualTo("MortarActivityScope");
+    assertThat(snapshot.getBundleSizes().keySet()).containsExactly("toolbar", "drawer");
+    assertThat(snapshot.getBundleSizes().get("toolbar")).isEqualTo(-1);
+  }
+
+  @Test public void printsLikeTheHierarchy() {
+    MortarActivityScope activityScope = createActivity(null, 3, true);
+    activityScope.onSaveInstanceState(new Bundle());
+
+    assertThat(snapshotTree(activityScope).toString()).isEqualTo("" //
+        + "Mortar Hierarchy:\n" //
+        + BLANK + "SCOPE activity (MortarActivityScope, bundles {toolbar=1, drawer=2})\n" //
+        + BLANK + "`-SCOPE screen (MortarActivityScope, bundles {list=3})\n" //
+    );
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static mortar.ScopeVisitor.Result.CONTINUE;
+import static mortar.ScopeVisitor.Result.SKIP_CHILDREN;
+import static mortar.ScopeVisitor.Result.STOP;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ScopeVisitorTest {
+  static class RecordingVisitor<S extends RealScope> extends ScopeVisitor<S> {
+    final List<String> visits = new ArrayList<>();
+    String skip;
+    String stop;
+
+    RecordingVisitor(Class<S> type) {
+      super(type);
+    }
+
+    @Override Result preVisit(S scope) {
+      visits.add("pre " + scope.getName());
+      if (scope.getName().equals(stop)) return STOP;
+      if (scope.getName().equals(skip)) return SKIP_CHILDREN;
+      return CONTINUE;
+    }
+
+    @Override void postVisit(S scope) {
+      visits.add("post " + scope.getName());
+    }
+  }
+
+  private RealScope root;
+
+  @Before public void setUp() {
+    root = (RealScope) Mortar.createRootScope(null);
+    MortarScope a = root.createChild("a", null);
+    a.createChild("a1", null);
+    a.createChild("a2", null);
+    root.createChild("b", null).createChild("b1", null);
+  }
+
+  @Test public void visitsDescendantsPreAndPostOrder() {
+    RecordingVisitor<RealScope> visitor = new RecordingVisitor<>(RealScope.class);
+    assertThat(visitor.visitDescendants(root)).isTrue();
+    assertThat(visitor.visits).containsExactly("pre a", "pre a1", "post a1", "pre a2", "post a2",
+        "post a", "pre b", "pre b1", "post b1", "post b");
+  }
+
+  @Test public void skipsChildren() {
+    RecordingVisitor<RealScope> visitor = new RecordingVisitor<>(RealScope.class);
+    visitor.skip = "a";
+    visitor.visitDescendants(root);
+    assertThat(visitor.visits).containsExactly("pre a", "pre b", "pre b1", "post b1", "post b");
+  }
+
+  @Test public void stops() {
+    RecordingVisitor<RealScope> visitor = new RecordingVisitor<>(RealScope.class);
+    visitor.stop = "a1";
+    assertThat(visitor.visitDescendants(root)).isFalse();
+    assertThat(visitor.visits).containsExactly("pre a", "pre a1");
+
+    // The abandoned walk leaves nothing behind.
+    visitor.visits.clear();
+    visitor.stop = null;
+    visitor.visitDescendants(root.findChild("b"));
+    assertThat(visitor.visits).containsExactly("pre b1", "post b1");
+  }
+
+  @Test public void skipsSubtreesOfOtherTypes() {
+    MortarActivityScope activity = Mortar.createActivityScope(root, "activity", null);
+    activity.createChild("screen", null);
+    Mortar.createActivityScope(root.findChild("a"), "hidden", null);
+
+    RecordingVisitor<RealActivityScope> visitor =
+        new RecordingVisitor<>(RealActivityScope.class);
+    visitor.visitDescendants(root);
+    assertThat(visitor.visits).containsExactly("pre activity", "pre screen", "post screen",
+        "post activity");
+  }
+
+  @Test public void skipsScopesDestroyedDuringTheWalk() {
+    RecordingVisitor<RealScope> visitor = new RecordingVisitor<RealScope>(RealScope.class) {
+      @Override Result preVisit(RealScope scope) {
+        if (scope.getName().equals("a1")) root.destroyChild(root.findChild("b"));
+        return super.preVisit(scope);
+      }
+    };
+    visitor.visitDescendants(root);
+    assertThat(visitor.visits).containsExactly("pre a", "pre a1", "post a1", "pre a2", "post a2",
+        "post a");
+  }
+
+  @Test public void nestedWalksShareTheStack() {
+    final RecordingVisitor<RealScope> inner = new RecordingVisitor<>(RealScope.class);
+    RecordingVisitor<RealScope> outer = new RecordingVisitor<RealScope>(RealScope.class) {
+      @Override Result preVisit(RealScope scope) {
+        if (scope.getName().equals("a")) visitDescendants(root.findChild("b"));
+        return super.preVisit(scope);
+      }
+    };
+    outer.visitDescendants(root);
+    assertThat(outer.visits).containsExactly("pre b1", "post b1", "pre a", "pre a1", "post a1",
+        "pre a2", "post a2", "post a", "pre b", "pre b1", "post b1", "post b");
+  }
+
+  @Test public void walksVeryDeepTree() {
+    MortarScope scope = root;
+    for (int i = 0; i < 100000; i++) {
+      scope = scope.createChild("deep" + i, null);
+    }
+    RecordingVisitor<RealScope> visitor = new RecordingVisitor<>(RealScope.class);
+    visitor.visitDescendants(root);
+    assertThat(visitor.visits).hasSize(2 * 100005);
+  }
+}
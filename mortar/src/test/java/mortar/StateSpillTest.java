@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public class StateSpillTest {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /** Stands in for Parcel, which Robolectric can't marshall. Keeps only the "payload" string. */
+  static final StateSpill.Codec PAYLOAD = new StateSpill.Codec() {
+    @Override public byte[] encode(Bundle bundle) {
+      String payload = bundle.getString("payload");
+      return payload == null ? new byte[0] : payload.getBytes(UTF_8);
+    }
+
+    @Override public Bundle decode(byte[] bytes) {
+      Bundle bundle = new Bundle();
+      bundle.putString("payload", new String(bytes, UTF_8));
+      return bundle;
+    }
+  };
+
+  private File dir;
+
+  @Before public void setUp() throws IOException {
+    dir = File.createTempFile("mortar-state", "");
+    assertThat(dir.delete()).isTrue();
+  }
+
+  @After public void tearDown() {
+    delete(dir);
+  }
+
+  @Test public void keepsSmallBundles() {
+    StateSpill spill = new StateSpill(dir, 10, PAYLOAD);
+    Bundle bundle = payload("small");
+    assertThat(spill.spill("Root/activity/key", bundle)).isSameAs(bundle);
+    assertThat(dir.exists()).isFalse();
+  }
+
+  @Test public void spillsLargeBundlesAndRestoresThemFromMemory() {
+    StateSpill spill = new StateSpill(dir, 10, PAYLOAD);
+    Bundle bundle = payload("rather too large");
+    Bundle token = spill.spill("Root/activity/key", bundle);
+    assertThat(StateSpill.isToken(token)).isTrue();
+    assertThat(token.size()).isEqualTo(1);
+    assertThat(spill.restore("Root/activity/key", token)).isSameAs(bundle);
+  }
+
+  @Test public void restoresFromDiskAfterProcessDeath() {
+    Bundle token = new StateSpill(dir, 10, PAYLOAD).spill("Root/activity/key",
+        payload("rather too large"));
+
+    StateSpill reborn = new StateSpill(dir, 10, PAYLOAD);
+    assertThat(reborn.restore("Root/activity/key", token).getString("payload")).isEqualTo(
+        "rather too large");
+  }
+
+  @Test public void ignoresFilesFromOtherSaves() {
+    StateSpill spill = new StateSpill(dir, 10, PAYLOAD);
+    Bundle stale = spill.spill("Root/activity/key", payload("rather too large"));
+    spill.spill("Root/activity/key", payload("larger still, and newer"));
+
+    assertThat(new StateSpill(dir, 10, PAYLOAD).restore("Root/activity/key", stale)).isNull();
+  }
+
+  @Test public void ignoresTruncatedFiles() throws IOException {
+    Bundle token = new StateSpill(dir, 10, PAYLOAD).spill("Root/activity/key",
+        payload("rather too large"));
+    File file = new File(new File(new File(dir, "Root"), "activity"), "key");
+    RandomAccessFile out = new RandomAccessFile(file, "rw");
+    try {
+      out.setLength(out.length() - 1);
+    } finally {
+      out.close();
+    }
+
+    assertThat(new StateSpill(dir, 10, PAYLOAD).restore("Root/activity/key", token)).isNull();
+  }
+
+  @Test public void escapesNamesThatAreNotSafeFileNames() {
+    Bundle token = new StateSpill(dir, 10, PAYLOAD).spill("Root/../\u00e9/.key",
+        payload("rather too large"));
+    assertThat(new File(dir, "Root").list()).containsOnly("%2e%2e");
+    assertThat(new StateSpill(dir, 10, PAYLOAD).restore("Root/../\u00e9/.key", token)
+        .getString("payload")).isEqualTo("rather too large");
+  }
+
+  @Test public void forgetsScopes() {
+    StateSpill spill = new StateSpill(dir, 10, PAYLOAD);
+    Bundle gone = spill.spill("Root/activity/child/key", payload("rather too large"));
+    Bundle kept = spill.spill("Root/activity/key", payload("rather too large"));
+
+    spill.forget("Root/activity/child");
+    assertThat(spill.restore("Root/activity/child/key", gone)).isNull();
+    assertThat(spill.restore("Root/activity/key", kept)).isNotNull();
+  }
+
+  @Test public void forgetOnlyDeletesWhatWasSpilled() throws IOException {
+    StateSpill spill = new StateSpill(dir, 10, PAYLOAD);
+    Bundle gone = spill.spill("Root/activity/key", payload("rather too large"));
+    File stranger = new File(new File(new File(dir, "Root"), "activity"), "stranger");
+    assertThat(stranger.createNewFile()).isTrue();
+
+    spill.forget("Root/activity");
+    assertThat(new StateSpill(dir, 10, PAYLOAD).restore("Root/activity/key", gone)).isNull();
+    assertThat(stranger.exists()).isTrue();
+  }
+
+  @Test public void forgetDeletesDirectoriesItEmpties() {
+    StateSpill spill = new StateSpill(dir, 10, PAYLOAD);
+    spill.spill("Root/activity/child/key", payload("rather too large"));
+
+    spill.forget("Root/activity");
+    assertThat(new File(dir, "Root").list()).isEmpty();
+  }
+
+  @Test public void bundlesThatCannotReachTheLimitAreNotEncoded() {
+    final int[] encodes = new int[1];
+    StateSpill.Codec counting = new StateSpill.Codec() {
+      @Override public byte[] encode(Bundle bundle) {
+        encodes[0]++;
+        return PAYLOAD.encode(bundle);
+      }
+
+      @Override public Bundle decode(byte[] bytes) {
+        return PAYLOAD.decode(bytes);
+      }
+    };
+    StateSpill spill = new StateSpill(dir, 1000, counting);
+
+    Bundle small = payload("small");
+    small.putInt("count", 3);
+    small.putBundle("nested", payload("also small"));
+    assertThat(spill.spill("Root/activity/key", small)).isSameAs(small);
+    assertThat(encodes[0]).isEqualTo(0);
+
+    Bundle large = payload(new String(new char[600]));
+    assertThat(spill.spill("Root/activity/key", large)).isSameAs(large);
+    assertThat(encodes[0]).isEqualTo(1);
+  }
+
+  private static Bundle payload(String payload) {
+    Bundle bundle = new Bundle();
+    bundle.putString("payload", payload);
+    return bundle;
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
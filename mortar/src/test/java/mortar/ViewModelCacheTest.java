@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Square Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package mortar;
+
+import android.os.Bundle;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+// Robolectric allows us to use Bundles.
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public class ViewModelCacheTest {
+  static class SomeView {
+    String shown;
+  }
+
+  class CachingPresenter extends Presenter<SomeView> {
+    final List<Bundle> loadedFrom = new ArrayList<>();
+    final ViewModelCache<SomeView, String> model =
+        new ViewModelCache<>(this, new ViewModelCache.Binder<SomeView, String>() {
+          @Override public String load(Bundle savedInstanceState) {
+            loadedFrom.add(savedInstanceState);
+            return "model " + loadedFrom.size();
+          }
+
+          @Override public void bind(SomeView view, String model) {
+            view.shown = model;
+          }
+        });
+
+    @Override protected MortarScope extractScope(SomeView view) {
+      return scope;
+    }
+
+    @Override protected void onLoad(Bundle savedInstanceState) {
+      model.bind(getView(), savedInstanceState);
+    }
+  }
+
+  MortarScope root;
+  MortarActivityScope scope;
+  CachingPresenter presenter;
+
+  @Before public void setUp() {
+    root = Mortar.createRootScope(false);
+    scope = Mortar.createActivityScope(root, "activity", null);
+    scope.onCreate(null);
+    presenter = new CachingPresenter();
+  }
+
+  @Test public void newViewsAreBoundFromTheCachedModel() {
+    SomeView first = new SomeView();
+    presenter.takeView(first);
+    SomeView second = new SomeView();
+    presenter.takeView(second);
+    presenter.dropView(second);
+    SomeView third = new SomeView();
+    presenter.takeView(third);
+
+    assertThat(first.shown).isEqualTo("model 1");
+    assertThat(second.shown).isEqualTo("model 1");
+    assertThat(third.shown).isEqualTo("model 1");
+    assertThat(presenter.model.getLoadCount()).isEqualTo(1);
+  }
+
+  @Test public void invalidatedModelIsLoadedAgain() {
+    presenter.takeView(new SomeView());
+    presenter.model.invalidate();
+    assertThat(presenter.model.isCached()).isFalse();
+
+    SomeView view = new SomeView();
+    presenter.takeView(view);
+
+    assertThat(view.shown).isEqualTo("model 2");
+    assertThat(presenter.model.getLoadCount()).isEqualTo(2);
+  }
+
+  @Test public void setModelIsBoundToTheNextView() {
+    presenter.takeView(new SomeView());
+    presenter.model.set("changed");
+
+    SomeView view = new SomeView();
+    presenter.takeView(view);
+
+    assertThat(view.shown).isEqualTo("changed");
+    assertThat(presenter.model.get()).isEqualTo("changed");
+    assertThat(presenter.model.getLoadCount()).isEqualTo(1);
+  }
+
+  @Test public void exitingTheScopeForgetsTheModel() {
+    presenter.takeView(new SomeView());
+
+    root.destroyChild(scope);
+
+    assertThat(presenter.model.isCached()).isFalse();
+    assertThat(presenter.model.get()).isNull();
+  }
+
+  @Test public void savedStateIsOnlyReadWhenLoading() {
+    Bundle saved = new Bundle();
+    presenter.model.bind(new SomeView(), saved);
+    presenter.model.bind(new SomeView(), new Bundle());
+
+    assertThat(presenter.loadedFrom).hasSize(1);
+    assertThat(presenter.loadedFrom.get(0)).isSameAs(saved);
+  }
+}